@@ -0,0 +1,83 @@
+package org.impstack.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish throughput of the {@link EventPublisher} by number of listeners and publishing threads, and the cost of
+ * subscribing and unsubscribing a listener.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventPublisherBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int listenerCount;
+
+    private EventPublisher publisher;
+    private EventListener<BenchmarkEvent> churnListener;
+    private BenchmarkEvent event;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        publisher = new EventPublisher();
+        for (int i = 0; i < listenerCount; i++) {
+            publisher.addListener((EventListener<BenchmarkEvent>) blackhole::consume, BenchmarkEvent.class);
+        }
+        churnListener = blackhole::consume;
+        event = new BenchmarkEvent();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void publish1Thread() {
+        publisher.publish(event);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void publish4Threads() {
+        publisher.publish(event);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void publishMaxThreads() {
+        publisher.publish(event);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void subscribeUnsubscribe() {
+        publisher.addListener(churnListener, BenchmarkEvent.class);
+        publisher.removeListener(churnListener, BenchmarkEvent.class);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void subscribeUnsubscribe4Threads() {
+        publisher.addListener(churnListener, BenchmarkEvent.class);
+        publisher.removeListener(churnListener, BenchmarkEvent.class);
+    }
+
+    public static class BenchmarkEvent implements Event {
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.impstack.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing a new event compared with publishing an event obtained from an {@link EventPool}. Run it with the gc
+ * profiler to compare the allocation rate: ./gradlew jmh -Pjmh.include=PooledEvent -Pjmh.profilers=gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PooledEventBenchmark {
+
+    private EventPublisher publisher;
+    private EventPool<BenchmarkEvent> pool;
+    private int value;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        publisher = new EventPublisher();
+        publisher.addListener((EventListener<BenchmarkEvent>) event -> blackhole.consume(event.getValue()),
+                BenchmarkEvent.class);
+        pool = new EventPool<>(BenchmarkEvent::new);
+    }
+
+    @Benchmark
+    public void publishNew() {
+        publisher.publish(new BenchmarkEvent().set(value++));
+    }
+
+    @Benchmark
+    public void publishPooled() {
+        publisher.publish(pool.obtain().set(value++));
+    }
+
+    public static class BenchmarkEvent extends PooledEvent {
+
+        private int value;
+
+        BenchmarkEvent set(int value) {
+            this.value = value;
+            return this;
+        }
+
+        int getValue() {
+            return value;
+        }
+
+        @Override
+        protected void reset() {
+            value = 0;
+        }
+
+    }
+
+}
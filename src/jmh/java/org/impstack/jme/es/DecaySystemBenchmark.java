@@ -0,0 +1,66 @@
+package org.impstack.jme.es;
+
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.base.DefaultEntityData;
+import com.simsilica.sim.GameSystemManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of a {@link DecaySystem} tick on an in-memory entity data set where none of the entities expire.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class DecaySystemBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int entityCount;
+
+    private EntityData entityData;
+    private GameSystemManager systemManager;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        entityData = new DefaultEntityData();
+        for (int i = 0; i < entityCount; i++) {
+            EntityId entityId = entityData.createEntity();
+            entityData.setComponent(entityId, new Decay(TimeUnit.HOURS.toMillis(1)));
+        }
+
+        systemManager = new GameSystemManager();
+        systemManager.register(DecaySystem.class, new DecaySystem(entityData));
+        systemManager.initialize();
+        systemManager.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        systemManager.stop();
+        systemManager.terminate();
+        entityData.close();
+    }
+
+    @Benchmark
+    public void tick() {
+        systemManager.update();
+    }
+
+}
@@ -0,0 +1,14 @@
+package org.impstack.event;
+
+/**
+ * An event that can be cancelled by a listener. When a listener cancels the event, the {@link EventPublisher} stops
+ * the dispatch and the listeners with a lower priority don't receive the event.
+ * A {@link PooledEvent} that is cancellable should clear the cancelled flag in {@link PooledEvent#reset()}.
+ */
+public interface CancellableEvent extends Event {
+
+    void cancel();
+
+    boolean isCancelled();
+
+}
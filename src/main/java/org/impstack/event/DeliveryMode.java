@@ -0,0 +1,26 @@
+package org.impstack.event;
+
+/**
+ * Defines how the {@link EventPublisher} delivers events to a listener.
+ */
+public enum DeliveryMode {
+
+    /**
+     * The listener is called on the thread that publishes the event, before {@link EventPublisher#publish(Event)}
+     * returns.
+     */
+    SYNC,
+
+    /**
+     * The event is queued and the listener is called on the executor of the {@link EventPublisher}. Events are delivered
+     * to a listener in publish order, one at a time.
+     */
+    ASYNC,
+
+    /**
+     * The event is queued until {@link EventPublisher#flush()} is called, typically once per frame by the
+     * {@link org.impstack.jme.state.EventPublisherState}.
+     */
+    FRAME_BATCHED
+
+}
@@ -0,0 +1,109 @@
+package org.impstack.event;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Holds the newest pending event per coalescing key. The key is the class of the event, combined with the value of
+ * the key extractor when one is registered for the event class. Keys are delivered in the order they first became
+ * pending.
+ */
+class EventCoalescer {
+
+    private final ConcurrentMap<Class<?>, Function<Event, ?>> keyExtractors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, Event> pending = new ConcurrentHashMap<>();
+    private final Queue<Object> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    <T extends Event> void setKeyExtractor(Class<T> type, Function<? super T, ?> keyExtractor) {
+        if (keyExtractor == null) {
+            keyExtractors.remove(type);
+        } else {
+            keyExtractors.put(type, (Function<Event, ?>) keyExtractor);
+        }
+    }
+
+    void offer(Event event) {
+        Object key = getKey(event);
+        Event previous = pending.put(key, event);
+        if (previous == null) {
+            order.offer(key);
+            size.incrementAndGet();
+        } else {
+            coalesced.incrementAndGet();
+            PooledEvent.release(previous);
+        }
+    }
+
+    /**
+     * Delivers the pending events to the consumer. Events that become pending during the flush are delivered on the
+     * next flush.
+     */
+    void flush(Consumer<Event> consumer) {
+        for (int i = size.get(); i > 0; i--) {
+            Object key = order.poll();
+            if (key == null) {
+                return;
+            }
+            size.decrementAndGet();
+            Event event = pending.remove(key);
+            if (event != null) {
+                consumer.accept(event);
+            }
+        }
+    }
+
+    void clear() {
+        pending.values().forEach(PooledEvent::release);
+        pending.clear();
+        order.clear();
+        size.set(0);
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private Object getKey(Event event) {
+        Function<Event, ?> keyExtractor = keyExtractors.get(event.getClass());
+        return keyExtractor == null ? event.getClass() : new Key(event.getClass(), keyExtractor.apply(event));
+    }
+
+    private static final class Key {
+
+        private final Class<?> type;
+        private final Object value;
+
+        private Key(Class<?> type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return type == key.type && Objects.equals(value, key.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + Objects.hashCode(value);
+        }
+    }
+
+}
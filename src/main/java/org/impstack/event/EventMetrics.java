@@ -0,0 +1,76 @@
+package org.impstack.event;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of an {@link EventPublisher}: the number of published events per event class and the latency of each
+ * listener. Metrics are only collected when they are enabled with {@link EventPublisher#setMetricsEnabled(boolean)}.
+ * <p>
+ * A {@link SlowListenerHandler} is notified when a listener takes longer than the slow listener threshold to handle an
+ * event. The handler is called on the thread that called the listener.
+ */
+public class EventMetrics {
+
+    private final ConcurrentMap<Class<?>, LongAdder> publishCounts = new ConcurrentHashMap<>();
+    private volatile long slowListenerThresholdNanos = Long.MAX_VALUE;
+    private volatile SlowListenerHandler slowListenerHandler;
+
+    public void setSlowListenerThreshold(long time, TimeUnit unit) {
+        this.slowListenerThresholdNanos = unit.toNanos(time);
+    }
+
+    public long getSlowListenerThreshold(TimeUnit unit) {
+        return unit.convert(slowListenerThresholdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void setSlowListenerHandler(SlowListenerHandler slowListenerHandler) {
+        this.slowListenerHandler = slowListenerHandler;
+    }
+
+    public long getPublishCount(Class<? extends Event> type) {
+        LongAdder count = publishCounts.get(type);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @return a copy of the number of published events per event class
+     */
+    public Map<Class<?>, Long> getPublishCounts() {
+        Map<Class<?>, Long> counts = new HashMap<>();
+        publishCounts.forEach((type, count) -> counts.put(type, count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public void reset() {
+        publishCounts.clear();
+    }
+
+    void published(Class<?> type) {
+        LongAdder count = publishCounts.get(type);
+        if (count == null) {
+            count = publishCounts.computeIfAbsent(type, t -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    void delivered(Subscription subscription, Event event, long nanos) {
+        subscription.getLatency().record(nanos);
+        SlowListenerHandler handler = slowListenerHandler;
+        if (handler != null && nanos >= slowListenerThresholdNanos) {
+            handler.onSlowListener(subscription, event, nanos);
+        }
+    }
+
+    @FunctionalInterface
+    public interface SlowListenerHandler {
+
+        void onSlowListener(Subscription subscription, Event event, long nanos);
+
+    }
+}
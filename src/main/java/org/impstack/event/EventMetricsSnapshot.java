@@ -0,0 +1,106 @@
+package org.impstack.event;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A point in time copy of the {@link EventMetrics} of an {@link EventPublisher}, that can be polled by eg. a debug
+ * overlay or a JMX bean. All times are in nanoseconds.
+ */
+public class EventMetricsSnapshot {
+
+    private final Map<Class<?>, Long> publishCounts;
+    private final List<ListenerMetrics> listeners;
+
+    EventMetricsSnapshot(Map<Class<?>, Long> publishCounts, List<ListenerMetrics> listeners) {
+        this.publishCounts = publishCounts;
+        this.listeners = Collections.unmodifiableList(listeners);
+    }
+
+    public Map<Class<?>, Long> getPublishCounts() {
+        return publishCounts;
+    }
+
+    public List<ListenerMetrics> getListeners() {
+        return listeners;
+    }
+
+    @Override
+    public String toString() {
+        return "EventMetricsSnapshot{" +
+                "publishCounts=" + publishCounts +
+                ", listeners=" + listeners +
+                '}';
+    }
+
+    public static class ListenerMetrics {
+
+        private final String listener;
+        private final DeliveryMode deliveryMode;
+        private final long count;
+        private final double meanNanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        private final int queueDepth;
+        private final long dropCount;
+
+        ListenerMetrics(Subscription subscription) {
+            LatencyHistogram latency = subscription.getLatency();
+            this.listener = String.valueOf(subscription.getListener());
+            this.deliveryMode = subscription.getDeliveryMode();
+            this.count = latency.getCount();
+            this.meanNanos = latency.getMeanNanos();
+            this.p99Nanos = latency.getPercentileNanos(0.99);
+            this.maxNanos = latency.getMaxNanos();
+            this.queueDepth = subscription.getQueueDepth();
+            this.dropCount = subscription.getDropCount();
+        }
+
+        public String getListener() {
+            return listener;
+        }
+
+        public DeliveryMode getDeliveryMode() {
+            return deliveryMode;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanNanos() {
+            return meanNanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getDropCount() {
+            return dropCount;
+        }
+
+        @Override
+        public String toString() {
+            return "ListenerMetrics{" +
+                    "listener='" + listener + '\'' +
+                    ", deliveryMode=" + deliveryMode +
+                    ", count=" + count +
+                    ", meanNanos=" + meanNanos +
+                    ", p99Nanos=" + p99Nanos +
+                    ", maxNanos=" + maxNanos +
+                    ", queueDepth=" + queueDepth +
+                    ", dropCount=" + dropCount +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.impstack.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A pool of reusable {@link PooledEvent}s of one type. Events are obtained from the pool, filled in and published on
+ * the {@link EventPublisher}, which returns them to the pool once they are delivered. When the pool is empty, a new
+ * event is created with the factory. At most capacity events are kept in the pool.
+ * <p>
+ * In debug mode recycled events are never handed out again, so a listener that kept a reference to a recycled event
+ * fails on the next {@link PooledEvent#checkNotRecycled()} instead of silently reading the values of a newer event.
+ */
+public class EventPool<T extends PooledEvent> {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventPool.class);
+
+    private final Supplier<T> factory;
+    private final PooledEvent[] free;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private int size;
+    private volatile boolean debug;
+
+    public EventPool(Supplier<T> factory) {
+        this(factory, DEFAULT_CAPACITY);
+    }
+
+    public EventPool(Supplier<T> factory, int capacity) {
+        this.factory = factory;
+        this.free = new PooledEvent[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T obtain() {
+        T event = null;
+        synchronized (free) {
+            if (size > 0) {
+                event = (T) free[--size];
+                free[size] = null;
+            }
+        }
+        if (event == null) {
+            event = factory.get();
+            created.incrementAndGet();
+        } else {
+            reused.incrementAndGet();
+        }
+        event.obtained(this);
+        return event;
+    }
+
+    /**
+     * @return the number of events created by the factory
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return the number of events handed out again after they were recycled
+     */
+    public long getReusedCount() {
+        return reused.get();
+    }
+
+    public int size() {
+        synchronized (free) {
+            return size;
+        }
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    void recycle(PooledEvent event) {
+        event.recycled();
+        if (debug) {
+            LOG.trace("Not reusing recycled {} in debug mode", event);
+            return;
+        }
+        synchronized (free) {
+            if (size < free.length) {
+                free[size++] = event;
+            }
+        }
+    }
+
+}
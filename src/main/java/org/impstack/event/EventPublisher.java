@@ -5,48 +5,489 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * A thread-safe eventbus implementation. Listeners can subscribe to receive specific events.
  * An event should implement the {@link Event} interface, an event listener should implement the {@link EventListener}
  * interface.
+ * <p>
+ * The listeners of an event type are stored in an immutable array that is replaced on every add or remove
+ * (copy-on-write). Publishing an event reads the current array without taking a lock or allocating, so listeners
+ * can be added or removed while an event is being dispatched. A dispatch that is in progress keeps using the array
+ * it started with.
+ * <p>
+ * Listeners registered for a super class or a super interface of an event also receive the event, a listener registered
+ * on {@link Event} receives all events. The listeners for a concrete event class are resolved once and cached in a
+ * dispatch table, the table is discarded when a listener is added or removed.
+ * <p>
+ * Each listener is registered with a {@link DeliveryMode}. {@link DeliveryMode#SYNC} listeners are called on the
+ * publishing thread, {@link DeliveryMode#ASYNC} listeners are called on a bounded executor and
+ * {@link DeliveryMode#FRAME_BATCHED} listeners are called when {@link #flush()} is called. Queued listeners have a
+ * bounded queue, the {@link OverflowPolicy} defines what happens when the queue is full.
+ * <p>
+ * Events for which only the latest value matters can be published with {@link #publishLatest(Event)}. Only the newest
+ * pending event per event class (and optional key, see {@link #setCoalescingKey(Class, Function)}) is published on the
+ * next {@link #flush()}.
+ * <p>
+ * {@link #INSTANCE} is the default eventbus, other isolated instances can be created. A child eventbus created with
+ * {@link #createChild()} forwards all its events to its parent, and is flushed together with its parent. Closing a child
+ * removes all its listeners and detaches it from its parent.
+ * <p>
+ * Every registration returns a {@link Subscription} that can be closed to unregister the listener for all its event
+ * types. Listeners can be held weakly ({@link #addWeakListener(EventListener, Class[])}) or expire with a condition
+ * ({@link Subscription#expireWhen(java.util.function.BooleanSupplier)}), expired subscriptions are removed during
+ * dispatch.
+ * <p>
+ * To avoid allocating an event for every publish, events can be obtained from an {@link EventPool}. A
+ * {@link PooledEvent} is returned to its pool after it is delivered to all listeners.
+ * <p>
+ * Listeners are called in order of their priority, the order is determined when a listener is registered and never
+ * during dispatch. A listener can cancel a {@link CancellableEvent}, the remaining listeners will not receive it.
+ * <p>
+ * Metrics (publish counts per event class and latency per listener) are collected when enabled with
+ * {@link #setMetricsEnabled(boolean)}, see {@link EventMetrics}.
  */
-public enum EventPublisher {
-    INSTANCE;
+public class EventPublisher {
 
-    private final Logger LOG = LoggerFactory.getLogger(EventPublisher.class);
-    private final ConcurrentMap<Class<? extends Event>, List<EventListener>> listeners = new ConcurrentHashMap<>();
+    public static final EventPublisher INSTANCE = new EventPublisher();
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventPublisher.class);
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final EventPublisher parent;
+    private final List<EventPublisher> children = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<Class<? extends Event>, Subscription[]> listeners = new ConcurrentHashMap<>();
+    private final List<Subscription> batched = new CopyOnWriteArrayList<>();
+    private final EventCoalescer coalescer = new EventCoalescer();
+    private volatile ConcurrentMap<Class<?>, Subscription[]> dispatchTable = new ConcurrentHashMap<>();
+    private volatile Executor executor;
+    private ExecutorService ownExecutor;
+    private volatile boolean closed;
+    volatile EventMetrics metrics;
+
+    public EventPublisher() {
+        this(null);
+    }
+
+    private EventPublisher(EventPublisher parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Creates a child eventbus. Events published on the child are delivered to the listeners of the child and then
+     * forwarded to this eventbus. Flushing this eventbus also flushes the child.
+     */
+    public EventPublisher createChild() {
+        EventPublisher child = new EventPublisher(this);
+        children.add(child);
+        return child;
+    }
+
+    public EventPublisher getParent() {
+        return parent;
+    }
+
+    /**
+     * Removes all listeners, pending events and children of this eventbus and detaches it from its parent. The executor
+     * that was created by this eventbus is shut down, an executor that was set is left running.
+     * Events published on a closed eventbus are ignored.
+     */
+    public void close() {
+        closed = true;
+        children.forEach(EventPublisher::close);
+        listeners.values().forEach(array -> Arrays.stream(array).forEach(Subscription::deactivate));
+        listeners.clear();
+        batched.clear();
+        coalescer.clear();
+        invalidateDispatchTable();
+        if (parent != null) {
+            parent.children.remove(this);
+        }
+        shutdownOwnExecutor();
+    }
 
     public void addListener(EventListener<? extends Event> listener, Class<? extends Event> event) {
-        getListenersForEvent(event).add(listener);
+        addListener(listener, DeliveryMode.SYNC, event);
     }
 
     public void addListener(EventListener<? extends Event> listener, Class<? extends Event>... events) {
-        Arrays.stream(events).forEach(event -> addListener(listener, event));
+        addListener(listener, DeliveryMode.SYNC, events);
+    }
+
+    /**
+     * Registers a listener with the given delivery mode. Queued listeners get a queue with the
+     * {@link #DEFAULT_QUEUE_CAPACITY} that drops the oldest event when full.
+     */
+    public Subscription addListener(EventListener<? extends Event> listener, DeliveryMode deliveryMode, Class<? extends Event>... events) {
+        return addListener(listener, deliveryMode, OverflowPolicy.DROP_OLDEST, DEFAULT_QUEUE_CAPACITY, events);
+    }
+
+    /**
+     * Registers a listener with the given delivery mode. The overflow policy and capacity are only used for
+     * {@link DeliveryMode#ASYNC} and {@link DeliveryMode#FRAME_BATCHED} listeners.
+     * The same subscription is used for all given event types.
+     */
+    public Subscription addListener(EventListener<? extends Event> listener, DeliveryMode deliveryMode,
+                                    OverflowPolicy overflowPolicy, int capacity, Class<? extends Event>... events) {
+        return addListener(listener, deliveryMode, overflowPolicy, capacity, DEFAULT_PRIORITY, events);
+    }
+
+    /**
+     * Registers a synchronous listener with a priority. Listeners with a higher priority receive an event first,
+     * listeners with the same priority are called in registration order.
+     */
+    public Subscription addListener(EventListener<? extends Event> listener, int priority, Class<? extends Event>... events) {
+        return addListener(listener, DeliveryMode.SYNC, OverflowPolicy.DROP_OLDEST, DEFAULT_QUEUE_CAPACITY, priority, events);
+    }
+
+    public Subscription addListener(EventListener<? extends Event> listener, DeliveryMode deliveryMode,
+                                    OverflowPolicy overflowPolicy, int capacity, int priority, Class<? extends Event>... events) {
+        return subscribe(new Subscription(this, listener, false, deliveryMode, overflowPolicy, capacity, priority, events));
+    }
+
+    /**
+     * Registers a listener that is only weakly referenced by the eventbus. When the listener is garbage collected, the
+     * subscription is removed during the next dispatch.
+     */
+    public Subscription addWeakListener(EventListener<? extends Event> listener, Class<? extends Event>... events) {
+        return addWeakListener(listener, DeliveryMode.SYNC, events);
+    }
+
+    public Subscription addWeakListener(EventListener<? extends Event> listener, DeliveryMode deliveryMode, Class<? extends Event>... events) {
+        return subscribe(new Subscription(this, listener, true, deliveryMode, OverflowPolicy.DROP_OLDEST,
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_PRIORITY, events));
     }
 
     public void removeListener(EventListener listener, Class<? extends Event> event) {
-        getListenersForEvent(event).remove(listener);
+        Subscription removed = remove(event, s -> listener.equals(s.getListener()));
+        if (removed != null && !isRegistered(removed)) {
+            removed.deactivate();
+            batched.remove(removed);
+        }
     }
 
     public void removeListener(EventListener listener, Class<? extends Event>... events) {
         Arrays.stream(events).forEach(event -> removeListener(listener, event));
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Delivers the event to all listeners of the event type and its super types. A {@link PooledEvent} is returned to
+     * its pool once all listeners received it, also when a synchronous listener throws an exception.
+     */
     public <T extends Event> void publish(T event) {
+        try {
+            if (!closed) {
+                dispatch(event);
+            }
+        } finally {
+            PooledEvent.release(event);
+        }
+    }
+
+    /**
+     * Queues the event until the next {@link #flush()}. When an event with the same coalescing key is already pending,
+     * it is replaced by this event and never published.
+     */
+    public <T extends Event> void publishLatest(T event) {
+        if (closed) {
+            PooledEvent.release(event);
+            return;
+        }
+        coalescer.offer(event);
+    }
+
+    /**
+     * Registers a key extractor for events of the given class that are published with {@link #publishLatest(Event)}.
+     * Pending events are coalesced per event class and extracted key, eg. per entity. Passing null removes the key
+     * extractor, events of the class are then coalesced per class.
+     */
+    public <T extends Event> void setCoalescingKey(Class<T> type, Function<? super T, ?> keyExtractor) {
+        coalescer.setKeyExtractor(type, keyExtractor);
+    }
+
+    /**
+     * @return the number of coalesced events waiting for the next {@link #flush()}
+     */
+    public int getPendingCoalescedCount() {
+        return coalescer.size();
+    }
+
+    /**
+     * @return the number of events published with {@link #publishLatest(Event)} that were replaced by a newer event
+     */
+    public long getCoalescedCount() {
+        return coalescer.getCoalesced();
+    }
+
+    /**
+     * Publishes the pending coalesced events and delivers all queued events to the {@link DeliveryMode#FRAME_BATCHED}
+     * listeners on the calling thread. The child eventbuses are flushed afterwards.
+     * This is typically called once per frame on the render thread by the
+     * {@link org.impstack.jme.state.EventPublisherState}.
+     */
+    public void flush() {
+        coalescer.flush(this::publish);
+        for (Subscription subscription : batched) {
+            subscription.drain();
+        }
+        for (EventPublisher child : children) {
+            child.flush();
+        }
+    }
+
+    /**
+     * @return the executor used to deliver events to {@link DeliveryMode#ASYNC} listeners. When no executor is set, the
+     * executor of the parent is used, or a fixed thread pool of daemon threads is created that is shut down when this
+     * eventbus is closed.
+     */
+    public Executor getExecutor() {
+        if (executor == null && parent != null) {
+            return parent.getExecutor();
+        }
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    ownExecutor = createExecutor();
+                    executor = ownExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        if (executor != ownExecutor) {
+            // the created executor is replaced
+            shutdownOwnExecutor();
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Enables or disables the collection of metrics. When disabled, publishing only checks a single field.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled && metrics == null) {
+            metrics = new EventMetrics();
+        } else if (!enabled) {
+            metrics = null;
+        }
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * @return the metrics of this eventbus, or null when metrics are disabled
+     */
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return a copy of the publish counts and the latency of all listeners, or null when metrics are disabled
+     */
+    public EventMetricsSnapshot getMetricsSnapshot() {
+        EventMetrics current = metrics;
+        if (current == null) {
+            return null;
+        }
+        Set<Subscription> subscriptions = new LinkedHashSet<>();
+        listeners.values().forEach(array -> subscriptions.addAll(Arrays.asList(array)));
+        List<EventMetricsSnapshot.ListenerMetrics> listenerMetrics = new ArrayList<>();
+        subscriptions.forEach(subscription -> listenerMetrics.add(new EventMetricsSnapshot.ListenerMetrics(subscription)));
+        return new EventMetricsSnapshot(current.getPublishCounts(), listenerMetrics);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Removes the subscription for all its event types. Called when a {@link Subscription} is closed.
+     */
+    void removeSubscription(Subscription subscription) {
+        for (Class<? extends Event> event : subscription.getEventTypes()) {
+            remove(event, s -> s == subscription);
+        }
+        subscription.deactivate();
+        batched.remove(subscription);
+    }
+
+    private void dispatch(Event event) {
         LOG.trace("Publishing {}", event);
-        List<EventListener> listeners = getListenersForEvent(event.getClass());
-        synchronized (listeners) {
-            listeners.forEach(l -> l.onEvent(event));
+        EventMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.published(event.getClass());
+        }
+        Subscription[] snapshot = getDispatchSubscriptions(event.getClass());
+        CancellableEvent cancellable = event instanceof CancellableEvent ? (CancellableEvent) event : null;
+        for (Subscription subscription : snapshot) {
+            subscription.deliver(event);
+            if (cancellable != null && cancellable.isCancelled()) {
+                LOG.trace("{} cancelled by {}", event, subscription);
+                return;
+            }
+        }
+        if (parent != null && !parent.closed) {
+            parent.dispatch(event);
+        }
+    }
+
+    private Subscription subscribe(Subscription subscription) {
+        Arrays.stream(subscription.getEventTypes()).forEach(event -> add(subscription, event));
+        if (subscription.getDeliveryMode() == DeliveryMode.FRAME_BATCHED) {
+            batched.add(subscription);
+        }
+        return subscription;
+    }
+
+    private void add(Subscription subscription, Class<? extends Event> event) {
+        listeners.compute(event, (type, current) -> {
+            Subscription[] array = current == null ? NO_SUBSCRIPTIONS : current;
+            // keep the array sorted on priority, after the subscriptions with the same priority
+            int index = array.length;
+            while (index > 0 && array[index - 1].getPriority() < subscription.getPriority()) {
+                index--;
+            }
+            Subscription[] copy = new Subscription[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, index);
+            copy[index] = subscription;
+            System.arraycopy(array, index, copy, index + 1, array.length - index);
+            return copy;
+        });
+        invalidateDispatchTable();
+    }
+
+    private Subscription remove(Class<? extends Event> event, Predicate<Subscription> matcher) {
+        Subscription[] removed = new Subscription[1];
+        listeners.computeIfPresent(event, (type, current) -> {
+            int index = indexOf(current, matcher);
+            if (index < 0) {
+                return current;
+            }
+            removed[0] = current[index];
+            if (current.length == 1) {
+                return null;
+            }
+            Subscription[] copy = new Subscription[current.length - 1];
+            System.arraycopy(current, 0, copy, 0, index);
+            System.arraycopy(current, index + 1, copy, index, current.length - index - 1);
+            return copy;
+        });
+        invalidateDispatchTable();
+        return removed[0];
+    }
+
+    private boolean isRegistered(Subscription subscription) {
+        return listeners.values().stream().anyMatch(array -> Arrays.asList(array).contains(subscription));
+    }
+
+    private Subscription[] getDispatchSubscriptions(Class<?> type) {
+        // capture the table before resolving, a resolution that races with a listener change ends up in a discarded table
+        ConcurrentMap<Class<?>, Subscription[]> table = dispatchTable;
+        Subscription[] resolved = table.get(type);
+        if (resolved == null) {
+            resolved = resolve(type);
+            table.putIfAbsent(type, resolved);
+        }
+        return resolved;
+    }
+
+    private Subscription[] resolve(Class<?> type) {
+        // a listener that is registered for multiple types in the hierarchy only receives the event once
+        Map<Object, Subscription> resolved = new LinkedHashMap<>();
+        for (Class<?> eventType : getEventTypes(type)) {
+            Subscription[] registered = listeners.get(eventType);
+            if (registered != null) {
+                for (Subscription subscription : registered) {
+                    // garbage collected weak listeners are kept, so they are removed on dispatch
+                    EventListener listener = subscription.getListener();
+                    resolved.putIfAbsent(listener != null ? listener : subscription, subscription);
+                }
+            }
+        }
+        LOG.trace("Resolved {} listeners for {}", resolved.size(), type);
+        if (resolved.isEmpty()) {
+            return NO_SUBSCRIPTIONS;
+        }
+        // merge the listeners of the event types on priority, the sort is stable so the most specific type goes first
+        Subscription[] array = resolved.values().toArray(new Subscription[0]);
+        Arrays.sort(array, Comparator.comparingInt(Subscription::getPriority).reversed());
+        return array;
+    }
+
+    private void invalidateDispatchTable() {
+        dispatchTable = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the event type and all its super classes and super interfaces that are an {@link Event}, the most specific
+     * type first.
+     */
+    private static List<Class<?>> getEventTypes(Class<?> type) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            if (Event.class.isAssignableFrom(c)) {
+                types.add(c);
+            }
+        }
+        List<Class<?>> classes = new ArrayList<>(types);
+        for (Class<?> c : classes) {
+            addInterfaces(c, types);
+        }
+        return new ArrayList<>(types);
+    }
+
+    private static void addInterfaces(Class<?> type, Set<Class<?>> types) {
+        for (Class<?> i : type.getInterfaces()) {
+            if (Event.class.isAssignableFrom(i) && types.add(i)) {
+                addInterfaces(i, types);
+            }
+        }
+    }
+
+    private static int indexOf(Subscription[] array, Predicate<Subscription> matcher) {
+        for (int i = 0; i < array.length; i++) {
+            if (matcher.test(array[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private synchronized void shutdownOwnExecutor() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+            ownExecutor = null;
         }
     }
 
-    private List<EventListener> getListenersForEvent(Class<? extends Event> event) {
-        return listeners.computeIfAbsent(event, f -> Collections.synchronizedList(new ArrayList<>()));
+    private static ExecutorService createExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "event-publisher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 }
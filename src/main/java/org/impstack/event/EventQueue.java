@@ -0,0 +1,108 @@
+package org.impstack.event;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free multi producer queue of events for a single listener. When the queue is full the
+ * {@link OverflowPolicy} decides what happens with the new event.
+ */
+class EventQueue {
+
+    private static final long BLOCK_PARK_NANOS = 100_000L;
+
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final OverflowPolicy overflowPolicy;
+    private final int capacity;
+
+    EventQueue(OverflowPolicy overflowPolicy, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of an event queue should be at least 1, got " + capacity);
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.capacity = capacity;
+    }
+
+    void offer(Event event) {
+        while (!tryReserve()) {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    break;
+                case COALESCE:
+                    if (removeSameType(event.getClass())) {
+                        break;
+                    }
+                    // nothing to coalesce, drop the oldest event instead
+                case DROP_OLDEST:
+                    dropOldest();
+                    break;
+            }
+        }
+        queue.offer(event);
+    }
+
+    Event poll() {
+        Event event = queue.poll();
+        if (event != null) {
+            size.decrementAndGet();
+        }
+        return event;
+    }
+
+    void clear() {
+        Event event;
+        while ((event = poll()) != null) {
+            PooledEvent.release(event);
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    private boolean tryReserve() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void dropOldest() {
+        Event event = poll();
+        if (event != null) {
+            dropped.incrementAndGet();
+            PooledEvent.release(event);
+        }
+    }
+
+    private boolean removeSameType(Class<?> type) {
+        boolean removed = false;
+        Iterator<Event> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Event queued = iterator.next();
+            if (queued.getClass() == type && queue.remove(queued)) {
+                size.decrementAndGet();
+                dropped.incrementAndGet();
+                PooledEvent.release(queued);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.impstack.event;
+
+/**
+ * Defines what happens when an event is published to a queued listener ({@link DeliveryMode#ASYNC} or
+ * {@link DeliveryMode#FRAME_BATCHED}) and the queue of the listener is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The publishing thread waits until there is room in the queue. Never use this policy for a
+     * {@link DeliveryMode#FRAME_BATCHED} listener when events are published on the thread that flushes the queue.
+     */
+    BLOCK,
+
+    /**
+     * The oldest queued event is dropped to make room for the new event.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Queued events of the same class as the new event are dropped, only the newest one is kept. When there are no
+     * queued events of the same class, the oldest queued event is dropped.
+     */
+    COALESCE
+
+}
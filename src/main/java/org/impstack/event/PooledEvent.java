@@ -0,0 +1,67 @@
+package org.impstack.event;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reusable event that is handed out by an {@link EventPool}. When a pooled event is published on the
+ * {@link EventPublisher}, it is returned to its pool as soon as all listeners received it: directly after the
+ * synchronous dispatch, or after the last queued listener handled it.
+ * <p>
+ * Listeners should never keep a reference to a pooled event, they should copy the values they need. Implementations
+ * should call {@link #checkNotRecycled()} in their accessors, combined with {@link EventPool#setDebug(boolean)} this
+ * detects listeners that use an event after it was recycled.
+ */
+public abstract class PooledEvent implements Event {
+
+    private final AtomicInteger references = new AtomicInteger();
+    private volatile EventPool pool;
+    private volatile boolean recycled;
+
+    /**
+     * Clears the state of the event before it is returned to its pool.
+     */
+    protected abstract void reset();
+
+    /**
+     * @throws IllegalStateException when the event was returned to its pool
+     */
+    protected final void checkNotRecycled() {
+        if (recycled) {
+            throw new IllegalStateException(getClass().getSimpleName() + " is used after it was returned to its pool, " +
+                    "listeners should not keep a reference to a pooled event");
+        }
+    }
+
+    public boolean isRecycled() {
+        return recycled;
+    }
+
+    void obtained(EventPool pool) {
+        this.pool = pool;
+        this.recycled = false;
+        references.set(1);
+    }
+
+    void recycled() {
+        reset();
+        recycled = true;
+    }
+
+    static void retain(Event event) {
+        if (event instanceof PooledEvent) {
+            ((PooledEvent) event).references.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static void release(Event event) {
+        if (event instanceof PooledEvent) {
+            PooledEvent pooled = (PooledEvent) event;
+            EventPool pool = pooled.pool;
+            if (pooled.references.decrementAndGet() == 0 && pool != null) {
+                pool.recycle(pooled);
+            }
+        }
+    }
+
+}
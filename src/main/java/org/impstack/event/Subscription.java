@@ -0,0 +1,220 @@
+package org.impstack.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A listener registered on the {@link EventPublisher} together with its {@link DeliveryMode}.
+ * Queued subscriptions ({@link DeliveryMode#ASYNC} and {@link DeliveryMode#FRAME_BATCHED}) expose the depth of their
+ * queue and the number of events that were dropped because the queue was full.
+ * <p>
+ * Closing the subscription removes the listener for all the event types it was registered with. A subscription is also
+ * closed during dispatch when its weakly referenced listener is garbage collected or when its expiry condition is met.
+ */
+public class Subscription implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Subscription.class);
+
+    private final EventPublisher publisher;
+    private final EventListener listener;
+    private final WeakReference<EventListener> weakListener;
+    private final Class<? extends Event>[] eventTypes;
+    private final DeliveryMode deliveryMode;
+    private final int priority;
+    private final EventQueue queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean active = true;
+    private volatile BooleanSupplier expiry;
+    private volatile LatencyHistogram latency;
+
+    Subscription(EventPublisher publisher, EventListener listener, boolean weak, DeliveryMode deliveryMode,
+                 OverflowPolicy overflowPolicy, int capacity, int priority, Class<? extends Event>[] eventTypes) {
+        this.publisher = publisher;
+        this.listener = weak ? null : listener;
+        this.weakListener = weak ? new WeakReference<>(listener) : null;
+        this.eventTypes = eventTypes.clone();
+        this.deliveryMode = deliveryMode;
+        this.priority = priority;
+        this.queue = deliveryMode == DeliveryMode.SYNC ? null : new EventQueue(overflowPolicy, capacity);
+    }
+
+    /**
+     * @return the listener, or null when the weakly referenced listener is garbage collected
+     */
+    public EventListener getListener() {
+        return listener != null ? listener : weakListener.get();
+    }
+
+    public Class<? extends Event>[] getEventTypes() {
+        return eventTypes.clone();
+    }
+
+    public boolean isWeak() {
+        return weakListener != null;
+    }
+
+    public DeliveryMode getDeliveryMode() {
+        return deliveryMode;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return the number of events waiting to be delivered to the listener
+     */
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return the number of events that were never delivered to the listener because the queue was full
+     */
+    public long getDropCount() {
+        return queue == null ? 0 : queue.getDropped();
+    }
+
+    /**
+     * Closes the subscription during the first dispatch where the condition returns true.
+     */
+    public Subscription expireWhen(BooleanSupplier condition) {
+        this.expiry = condition;
+        return this;
+    }
+
+    /**
+     * Removes the listener from the {@link EventPublisher} for all event types of this subscription.
+     */
+    @Override
+    public void close() {
+        if (active) {
+            publisher.removeSubscription(this);
+        }
+    }
+
+    /**
+     * @return the latency of the listener, only recorded when the metrics of the {@link EventPublisher} are enabled
+     */
+    public LatencyHistogram getLatency() {
+        if (latency == null) {
+            synchronized (this) {
+                if (latency == null) {
+                    latency = new LatencyHistogram();
+                }
+            }
+        }
+        return latency;
+    }
+
+    void deliver(Event event) {
+        EventListener target = getListener();
+        if (target == null || isExpired()) {
+            close();
+            return;
+        }
+        switch (deliveryMode) {
+            case SYNC:
+                invoke(target, event);
+                break;
+            case ASYNC:
+                PooledEvent.retain(event);
+                queue.offer(event);
+                schedule();
+                break;
+            case FRAME_BATCHED:
+                PooledEvent.retain(event);
+                queue.offer(event);
+                break;
+        }
+    }
+
+    /**
+     * Delivers all queued events to the listener on the calling thread.
+     */
+    void drain() {
+        Event event;
+        while (active && (event = queue.poll()) != null) {
+            EventListener target = getListener();
+            if (target == null) {
+                PooledEvent.release(event);
+                close();
+                return;
+            }
+            try {
+                invoke(target, event);
+            } catch (RuntimeException e) {
+                LOG.error("Error delivering " + event + " to " + target, e);
+            } finally {
+                PooledEvent.release(event);
+            }
+        }
+    }
+
+    void deactivate() {
+        active = false;
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invoke(EventListener target, Event event) {
+        EventMetrics metrics = publisher.metrics;
+        if (metrics == null) {
+            target.onEvent(event);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            target.onEvent(event);
+        } finally {
+            metrics.delivered(this, event, System.nanoTime() - start);
+        }
+    }
+
+    private boolean isExpired() {
+        BooleanSupplier condition = expiry;
+        return condition != null && condition.getAsBoolean();
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            publisher.getExecutor().execute(this::drainAsync);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            LOG.error("Unable to schedule the delivery of events to " + getListener(), e);
+        }
+    }
+
+    private void drainAsync() {
+        do {
+            drain();
+            scheduled.set(false);
+            // an event could be queued after draining but before the scheduled flag was cleared
+        } while (active && queue.size() > 0 && scheduled.compareAndSet(false, true));
+    }
+
+    @Override
+    public String toString() {
+        return "Subscription{" +
+                "listener=" + getListener() +
+                ", deliveryMode=" + deliveryMode +
+                ", priority=" + priority +
+                ", queueDepth=" + getQueueDepth() +
+                ", dropCount=" + getDropCount() +
+                '}';
+    }
+}
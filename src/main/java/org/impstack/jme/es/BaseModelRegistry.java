@@ -1,7 +1,10 @@
 package org.impstack.jme.es;
 
 import com.jme3.asset.AssetManager;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.SceneGraphVisitorAdapter;
 import com.jme3.scene.Spatial;
+import jme3tools.optimize.LodGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,6 +15,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * A base model registry implementation that uses an internal thread-safe index to look up models.
  * The {@link #getModelPath(Model)} method can be overwritten to allow for custom path retrieval for models that aren't
  * found in the registry.
+ * <p>
+ * Loaded models are kept as prototypes in a {@link ModelCache}. Each lookup returns a {@code clone(true)} copy of the
+ * prototype: the copies share the meshes of the prototype, but get their own materials. With
+ * {@link #setShareMaterials(boolean)} the copies share the materials of the prototype as well, a material should then
+ * be cloned before it is changed on a single copy.
+ * <p>
+ * Level of detail settings can be registered with {@link #registerLod(Model, LodSettings)}. Generated levels are baked
+ * in the meshes of the prototype, separately loaded levels are held by a node that only attaches the current level.
  */
 public class BaseModelRegistry implements ModelRegistry {
 
@@ -19,19 +30,95 @@ public class BaseModelRegistry implements ModelRegistry {
 
     protected final Map<String, String> registry = new ConcurrentHashMap<>();
     protected final AssetManager assetManager;
+    protected final Map<String, LodSettings> lodRegistry = new ConcurrentHashMap<>();
+    protected final ModelCache cache = new ModelCache();
+    private volatile boolean shareMaterials;
 
     public BaseModelRegistry(AssetManager assetManager) {
         this.assetManager = assetManager;
     }
 
     public String register(Model model, String modelPath) {
-        registry.put(model.getModelId(), modelPath);
+        String previous = registry.put(model.getModelId(), modelPath);
+        if (previous != null && !previous.equals(modelPath)) {
+            cache.remove(model.getModelId());
+        }
         LOG.trace("Registering {} -> {}", model, modelPath);
         return modelPath;
     }
 
+    /**
+     * Registers the level of detail settings of the model.
+     */
+    public void registerLod(Model model, LodSettings lodSettings) {
+        lodRegistry.put(model.getModelId(), lodSettings);
+        cache.remove(model.getModelId());
+        LOG.trace("Registering {} -> {}", model, lodSettings);
+    }
+
+    @Override
+    public LodSettings getLodSettings(Model model) {
+        return lodRegistry.get(model.getModelId());
+    }
+
     @Override
     public Spatial get(Model model) {
+        Spatial prototype = cache.get(model.getModelId());
+        if (prototype == null) {
+            prototype = cache.put(model.getModelId(), loadLevels(model));
+        }
+        return prototype.clone(!shareMaterials);
+    }
+
+    public ModelCache getCache() {
+        return cache;
+    }
+
+    public boolean isShareMaterials() {
+        return shareMaterials;
+    }
+
+    /**
+     * Sets if the returned copies share the materials of the prototype. Shared materials avoid a material clone for each
+     * lookup, but a change to a material of one copy is visible on all copies of the model.
+     */
+    public void setShareMaterials(boolean shareMaterials) {
+        this.shareMaterials = shareMaterials;
+    }
+
+    /**
+     * Loads the model and adds the lower detail levels of the registered level of detail settings.
+     */
+    protected Spatial loadLevels(Model model) {
+        Spatial spatial = load(model);
+        LodSettings lodSettings = getLodSettings(model);
+        if (lodSettings == null) {
+            return spatial;
+        }
+
+        if (lodSettings.isGenerated()) {
+            float[] reductionValues = lodSettings.getReductionValues();
+            spatial.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+                @Override
+                public void visit(Geometry geometry) {
+                    new LodGenerator(geometry)
+                            .bakeLods(LodGenerator.TriangleReductionMethod.PROPORTIONAL, reductionValues);
+                }
+            });
+            return spatial;
+        }
+
+        LodNode node = new LodNode(model.getModelId() + "-lod");
+        node.addLevel(spatial);
+        for (String path : lodSettings.getLevelPaths()) {
+            LOG.trace("Retrieving {} level -> {}", model, path);
+            node.addLevel(assetManager.loadModel(path));
+        }
+        node.setLevel(0);
+        return node;
+    }
+
+    protected Spatial load(Model model) {
         String path = registry.get(model.getModelId());
         if (path != null) {
             LOG.trace("Retrieving {} -> {}", model, path);
@@ -0,0 +1,111 @@
+package org.impstack.jme.es;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.simsilica.es.EntityComponent;
+
+/**
+ * An immutable entity component specifying the position of an entity with primitive floats: a location and a rotation
+ * quaternion. Unlike {@link Position}, it holds no mutable objects and the location and rotation can be written into a
+ * caller supplied {@link Vector3f} and {@link Quaternion}, so reading a position doesn't allocate.
+ */
+public class CompactPosition implements EntityComponent {
+
+    private final float x;
+    private final float y;
+    private final float z;
+    private final float rotationX;
+    private final float rotationY;
+    private final float rotationZ;
+    private final float rotationW;
+
+    public CompactPosition() {
+        this(0, 0, 0);
+    }
+
+    public CompactPosition(float x, float y, float z) {
+        this(x, y, z, 0, 0, 0, 1);
+    }
+
+    public CompactPosition(Vector3f location) {
+        this(location.x, location.y, location.z);
+    }
+
+    public CompactPosition(Vector3f location, Quaternion rotation) {
+        this(location.x, location.y, location.z, rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW());
+    }
+
+    public CompactPosition(float x, float y, float z, float rotationX, float rotationY, float rotationZ,
+                           float rotationW) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.rotationX = rotationX;
+        this.rotationY = rotationY;
+        this.rotationZ = rotationZ;
+        this.rotationW = rotationW;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    public float getRotationX() {
+        return rotationX;
+    }
+
+    public float getRotationY() {
+        return rotationY;
+    }
+
+    public float getRotationZ() {
+        return rotationZ;
+    }
+
+    public float getRotationW() {
+        return rotationW;
+    }
+
+    /**
+     * Writes the location in the given vector.
+     * @param store the vector to store the location in, or null to create a new vector
+     * @return the vector holding the location
+     */
+    public Vector3f getLocation(Vector3f store) {
+        if (store == null) {
+            store = new Vector3f();
+        }
+        return store.set(x, y, z);
+    }
+
+    /**
+     * Writes the rotation in the given quaternion.
+     * @param store the quaternion to store the rotation in, or null to create a new quaternion
+     * @return the quaternion holding the rotation
+     */
+    public Quaternion getRotation(Quaternion store) {
+        if (store == null) {
+            store = new Quaternion();
+        }
+        return store.set(rotationX, rotationY, rotationZ, rotationW);
+    }
+
+    @Override
+    public String toString() {
+        return "CompactPosition{" +
+                "x=" + x +
+                ", y=" + y +
+                ", z=" + z +
+                ", rotation=(" + rotationX + ", " + rotationY + ", " + rotationZ + ", " + rotationW + ")" +
+                '}';
+    }
+
+}
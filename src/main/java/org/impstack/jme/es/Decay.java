@@ -24,6 +24,13 @@ public class Decay implements EntityComponent {
         this.duration = duration;
     }
 
+    /**
+     * @return the time in milliseconds when the decay expires
+     */
+    public long getEndTime() {
+        return startTime + duration;
+    }
+
     public long getTimeRemaining() {
         return Math.max(0, (startTime + duration) - System.currentTimeMillis());
     }
@@ -1,22 +1,43 @@
 package org.impstack.jme.es;
 
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityComponent;
 import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
 import com.simsilica.es.EntitySet;
 import com.simsilica.sim.AbstractGameSystem;
 import com.simsilica.sim.SimTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A {@link com.simsilica.sim.GameSystem} implementation that handles {@link Decay} entity components.
  * When the duration on the {@link Decay} entity component is expired, the entity is removed from the entityData set.
+ * <p>
+ * The decaying entities are kept in an index ordered by their end time, that is updated with the changes of the entity
+ * set. A tick only handles the entities that expire. The expired entities are collected first and removed together at
+ * the end of the tick, at most {@link #setMaxRemovalsPerTick(int)} per tick.
+ * <p>
+ * The system runs on the game loop thread only. With the index a tick doesn't scan the decaying entities, so there is
+ * no expiry scan to split over multiple threads: the remaining work (indexing changed entities and removing expired
+ * ones) writes to the index and the entity data, which has to happen serially.
+ * <p>
+ * By default the {@link Decay} components are checked against the wall clock. With the {@link TimeSource#SIM_TIME} the
+ * system handles {@link SimDecay} components instead, that are checked against the time of the tick.
  */
 public class DecaySystem extends AbstractGameSystem {
 
     private static final Logger LOG = LoggerFactory.getLogger(DecaySystem.class);
 
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final List<EntityId> expired = new ArrayList<>();
     private EntityData entityData;
     private EntitySet decayEntities;
+    private TimeSource timeSource = TimeSource.SYSTEM_TIME;
+    private int maxRemovalsPerTick = Integer.MAX_VALUE;
 
     public DecaySystem() {
     }
@@ -25,29 +46,87 @@ public class DecaySystem extends AbstractGameSystem {
         this.entityData = entityData;
     }
 
+    public DecaySystem(EntityData entityData, TimeSource timeSource) {
+        this.entityData = entityData;
+        this.timeSource = timeSource;
+    }
+
     @Override
     protected void initialize() {
-        decayEntities = entityData.getEntities(Decay.class);
+        decayEntities = entityData.getEntities(getComponentType());
+        decayEntities.forEach(this::index);
     }
 
     @Override
     protected void terminate() {
         decayEntities.release();
+        expiryIndex.clear();
     }
 
     @Override
     public void update(SimTime time) {
-        decayEntities.applyChanges();
-        decayEntities.forEach(entity -> {
-            Decay decay = entity.get(Decay.class);
-            if (decay.isExpired()) {
-                entityData.removeEntity(entity.getId());
-                LOG.trace("Removing entity {}", entity);
-            }
-        });
+        if (decayEntities.applyChanges()) {
+            decayEntities.getAddedEntities().forEach(this::index);
+            decayEntities.getChangedEntities().forEach(this::index);
+            decayEntities.getRemovedEntities().forEach(entity -> expiryIndex.remove(entity.getId()));
+        }
+
+        long now = timeSource == TimeSource.SIM_TIME ? time.getTime() : System.currentTimeMillis();
+        EntityId entityId;
+        while (expired.size() < maxRemovalsPerTick && (entityId = expiryIndex.pollExpired(now)) != null) {
+            expired.add(entityId);
+        }
+        if (!expired.isEmpty()) {
+            LOG.trace("Removing {} entities", expired.size());
+            expired.forEach(entityData::removeEntity);
+            expired.clear();
+        }
     }
 
     public void setEntityData(EntityData entityData) {
         this.entityData = entityData;
     }
+
+    public int getMaxRemovalsPerTick() {
+        return maxRemovalsPerTick;
+    }
+
+    /**
+     * Limits the number of entities that are removed in one tick. Expired entities above the limit stay in the index and
+     * are removed in the next ticks, this spreads the cost of a mass expiry over multiple frames.
+     */
+    public void setMaxRemovalsPerTick(int maxRemovalsPerTick) {
+        if (maxRemovalsPerTick < 1) {
+            throw new IllegalArgumentException("The maximum removals per tick should be at least 1, got " + maxRemovalsPerTick);
+        }
+        this.maxRemovalsPerTick = maxRemovalsPerTick;
+    }
+
+    /**
+     * @return the number of entities waiting to expire, including the expired entities that exceeded the limit of the
+     * previous tick
+     */
+    public int getPendingCount() {
+        return expiryIndex.size();
+    }
+
+    public TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    /**
+     * Sets the clock used to check the expiry, this should be set before the system is initialized.
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        this.timeSource = timeSource;
+    }
+
+    private Class<? extends EntityComponent> getComponentType() {
+        return timeSource == TimeSource.SIM_TIME ? SimDecay.class : Decay.class;
+    }
+
+    private void index(Entity entity) {
+        long endTime = timeSource == TimeSource.SIM_TIME ? entity.get(SimDecay.class).getEndTime() : entity.get(Decay.class).getEndTime();
+        expiryIndex.put(entity.getId(), endTime);
+    }
 }
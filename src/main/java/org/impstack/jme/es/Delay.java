@@ -28,6 +28,13 @@ public class Delay implements EntityComponent {
         return components;
     }
 
+    /**
+     * @return the time in milliseconds when the delay expires
+     */
+    public long getEndTime() {
+        return startTime + duration;
+    }
+
     public boolean isExpired() {
         return System.currentTimeMillis() >= startTime + duration;
     }
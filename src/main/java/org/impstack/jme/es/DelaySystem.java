@@ -1,22 +1,42 @@
 package org.impstack.jme.es;
 
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityComponent;
 import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
 import com.simsilica.es.EntitySet;
 import com.simsilica.sim.AbstractGameSystem;
 import com.simsilica.sim.SimTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A {@link com.simsilica.sim.GameSystem} implementation that handles {@link Delay} components.
  * When the duration of the {@link Delay} entity component is expired, the entity components are added to the entity.
+ * <p>
+ * The delayed entities are kept in an index ordered by their end time, that is updated with the changes of the entity
+ * set. A tick only handles the entities that expire. The expired delays are collected first, and then applied
+ * together: the components are set and the {@link Delay} is removed right after each other for each entity.
+ * <p>
+ * The system runs on the game loop thread only. With the index a tick doesn't scan the delayed entities, so there is
+ * no expiry scan to split over multiple threads: the remaining work (indexing changed entities and applying expired
+ * delays) writes to the index and the entity data, which has to happen serially.
+ * <p>
+ * By default the {@link Delay} components are checked against the wall clock. With the {@link TimeSource#SIM_TIME} the
+ * system handles {@link SimDelay} components instead, that are checked against the time of the tick.
  */
 public class DelaySystem extends AbstractGameSystem {
 
     private static final Logger LOG = LoggerFactory.getLogger(DelaySystem.class);
 
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final List<Entity> expired = new ArrayList<>();
     private EntityData entityData;
     private EntitySet delayedComponents;
+    private TimeSource timeSource = TimeSource.SYSTEM_TIME;
 
     public DelaySystem() {
     }
@@ -25,31 +45,71 @@ public class DelaySystem extends AbstractGameSystem {
         this.entityData = entityData;
     }
 
+    public DelaySystem(EntityData entityData, TimeSource timeSource) {
+        this.entityData = entityData;
+        this.timeSource = timeSource;
+    }
+
     @Override
     protected void initialize() {
-        delayedComponents = entityData.getEntities(Delay.class);
+        delayedComponents = entityData.getEntities(getComponentType());
+        delayedComponents.forEach(this::index);
     }
 
     @Override
     public void update(SimTime time) {
-        delayedComponents.applyChanges();
-        delayedComponents.forEach(e -> {
-            Delay delay = e.get(Delay.class);
-            if (delay.isExpired()) {
-                LOG.trace("Setting {} on {}", delay.getComponents(), e.getId());
-                entityData.setComponents(e.getId(), delay.getComponents());
-                entityData.removeComponent(e.getId(), Delay.class);
-            }
-        });
+        if (delayedComponents.applyChanges()) {
+            delayedComponents.getAddedEntities().forEach(this::index);
+            delayedComponents.getChangedEntities().forEach(this::index);
+            delayedComponents.getRemovedEntities().forEach(e -> expiryIndex.remove(e.getId()));
+        }
+
+        long now = timeSource == TimeSource.SIM_TIME ? time.getTime() : System.currentTimeMillis();
+        EntityId entityId;
+        while ((entityId = expiryIndex.pollExpired(now)) != null) {
+            expired.add(delayedComponents.getEntity(entityId));
+        }
+        if (!expired.isEmpty()) {
+            expired.forEach(this::apply);
+            expired.clear();
+        }
     }
 
     @Override
     protected void terminate() {
         delayedComponents.release();
+        expiryIndex.clear();
     }
 
     public void setEntityData(EntityData entityData) {
         this.entityData = entityData;
     }
 
+    public TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    /**
+     * Sets the clock used to check the expiry, this should be set before the system is initialized.
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        this.timeSource = timeSource;
+    }
+
+    private Class<? extends EntityComponent> getComponentType() {
+        return timeSource == TimeSource.SIM_TIME ? SimDelay.class : Delay.class;
+    }
+
+    private void index(Entity e) {
+        long endTime = timeSource == TimeSource.SIM_TIME ? e.get(SimDelay.class).getEndTime() : e.get(Delay.class).getEndTime();
+        expiryIndex.put(e.getId(), endTime);
+    }
+
+    private void apply(Entity e) {
+        EntityComponent[] components = timeSource == TimeSource.SIM_TIME ? e.get(SimDelay.class).getComponents() : e.get(Delay.class).getComponents();
+        LOG.trace("Setting {} on {}", components, e.getId());
+        entityData.setComponents(e.getId(), components);
+        entityData.removeComponent(e.getId(), getComponentType());
+    }
+
 }
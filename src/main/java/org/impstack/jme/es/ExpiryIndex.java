@@ -0,0 +1,92 @@
+package org.impstack.jme.es;
+
+import com.simsilica.es.EntityId;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * An index of entities ordered by the time they expire. Updating the deadline of an entity or removing an entity
+ * leaves a stale entry in the queue, stale entries are skipped when they are polled and the queue is compacted when
+ * there are too many of them.
+ * This index is NOT threadsafe!
+ */
+class ExpiryIndex {
+
+    private static final int MIN_COMPACT_SIZE = 1024;
+
+    private final Map<EntityId, Long> deadlines = new HashMap<>();
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    /**
+     * Sets or updates the deadline of the entity.
+     */
+    void put(EntityId entityId, long deadline) {
+        Long previous = deadlines.put(entityId, deadline);
+        if (previous == null || previous != deadline) {
+            queue.add(new Entry(entityId, deadline));
+            compactIfNeeded();
+        }
+    }
+
+    void remove(EntityId entityId) {
+        if (deadlines.remove(entityId) != null) {
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Removes and returns an entity with a deadline before or at the given time.
+     * @return the expired entity, or null when no entity is expired
+     */
+    EntityId pollExpired(long time) {
+        Entry entry;
+        while ((entry = queue.peek()) != null && entry.deadline <= time) {
+            queue.poll();
+            Long deadline = deadlines.get(entry.entityId);
+            if (deadline != null && deadline == entry.deadline) {
+                deadlines.remove(entry.entityId);
+                return entry.entityId;
+            }
+        }
+        return null;
+    }
+
+    boolean contains(EntityId entityId) {
+        return deadlines.containsKey(entityId);
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    void clear() {
+        deadlines.clear();
+        queue.clear();
+    }
+
+    private void compactIfNeeded() {
+        if (queue.size() > MIN_COMPACT_SIZE && queue.size() > 2 * deadlines.size()) {
+            queue.clear();
+            deadlines.forEach((entityId, deadline) -> queue.add(new Entry(entityId, deadline)));
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+
+        private final EntityId entityId;
+        private final long deadline;
+
+        private Entry(EntityId entityId, long deadline) {
+            this.entityId = entityId;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            return Long.compare(deadline, o.deadline);
+        }
+    }
+
+}
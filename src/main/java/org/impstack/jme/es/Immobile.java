@@ -0,0 +1,16 @@
+package org.impstack.jme.es;
+
+import com.simsilica.es.EntityComponent;
+
+/**
+ * An entity component marking an entity that doesn't move after it is spawned. When static batching is enabled in the
+ * {@link VisualState}, the models of immobile entities are merged in static batches.
+ */
+public class Immobile implements EntityComponent {
+
+    @Override
+    public String toString() {
+        return "Immobile{}";
+    }
+
+}
@@ -0,0 +1,153 @@
+package org.impstack.jme.es;
+
+import com.jme3.material.MatParam;
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.instancing.InstancedNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups the spatials of entities with the same model id in an {@link InstancedNode}.
+ * Spatials that are attached to an instanced node should be marked with {@link #markDirty(Spatial, Node)}, the
+ * instanced geometries of the dirty nodes are rebuilt in {@link #instance()}. Transform changes of the spatials are
+ * picked up by the instanced node itself. Detaching a spatial from its instanced node removes it from the instanced
+ * geometries.
+ * <p>
+ * Only spatials of which all materials support the {@code UseInstancing} parameter can be instanced. The materials of
+ * the spatials aren't changed, each geometry gets a clone of its material with instancing enabled. Geometries with the
+ * same material (or a material with the same content) share the clone, so they end up in the same instanced geometry.
+ * <p>
+ * This class is not thread-safe and should only be used on the render thread.
+ */
+class InstancedModels {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstancedModels.class);
+    private static final String USE_INSTANCING = "UseInstancing";
+
+    private final Map<String, InstancedNode> nodes = new HashMap<>();
+    private final Set<InstancedNode> dirty = new LinkedHashSet<>();
+    private final List<Material> materials = new ArrayList<>();
+    private final List<Material> instancedMaterials = new ArrayList<>();
+
+    /**
+     * Returns the instanced node of the model id. A new node is created and attached to the scene graph when needed.
+     */
+    InstancedNode getNode(String modelId, Node sceneGraph) {
+        return nodes.computeIfAbsent(modelId, id -> {
+            InstancedNode node = new InstancedNode("instanced-" + id);
+            LOG.trace("Attach {} on {}", node, sceneGraph);
+            sceneGraph.attachChild(node);
+            return node;
+        });
+    }
+
+    /**
+     * @return true when the materials of all geometries of the spatial support instancing
+     */
+    static boolean canInstance(Spatial spatial) {
+        boolean[] supported = {true};
+        spatial.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geometry) {
+                Material material = geometry.getMaterial();
+                if (material == null || material.getMaterialDef().getMaterialParam(USE_INSTANCING) == null) {
+                    supported[0] = false;
+                }
+            }
+        });
+        return supported[0];
+    }
+
+    /**
+     * Prepares the entity spatial holding the given spatial for instancing and marks its instanced node as dirty. When
+     * the entity spatial can't be instanced (e.g. a loaded model replaced the placeholder), it is moved to the scene
+     * graph.
+     */
+    void markDirty(Spatial spatial, Node sceneGraph) {
+        // find the instanced node and its child holding the spatial
+        Spatial root = spatial;
+        while (root.getParent() != null && !(root.getParent() instanceof InstancedNode)) {
+            root = root.getParent();
+        }
+        InstancedNode node = (InstancedNode) root.getParent();
+        if (node == null) {
+            return;
+        }
+
+        if (!canInstance(root)) {
+            LOG.debug("Materials of {} don't support instancing, attaching it on {}", root, sceneGraph);
+            sceneGraph.attachChild(root);
+            return;
+        }
+
+        root.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geometry) {
+                geometry.setMaterial(getInstancedMaterial(geometry.getMaterial()));
+            }
+        });
+        dirty.add(node);
+    }
+
+    /**
+     * Rebuilds the instanced geometries of the dirty nodes.
+     * @return true when a node was rebuilt
+     */
+    boolean instance() {
+        if (dirty.isEmpty()) {
+            return false;
+        }
+        try {
+            dirty.forEach(InstancedNode::instance);
+        } finally {
+            dirty.clear();
+        }
+        return true;
+    }
+
+    int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * Detaches all instanced nodes from the scene graph.
+     */
+    void clear() {
+        nodes.values().forEach(Spatial::removeFromParent);
+        nodes.clear();
+        dirty.clear();
+        materials.clear();
+        instancedMaterials.clear();
+    }
+
+    private Material getInstancedMaterial(Material material) {
+        MatParam param = material.getParam(USE_INSTANCING);
+        if (param != null && Boolean.TRUE.equals(param.getValue())) {
+            return material;
+        }
+
+        for (int i = 0; i < materials.size(); i++) {
+            if (materials.get(i) == material || materials.get(i).contentEquals(material)) {
+                return instancedMaterials.get(i);
+            }
+        }
+
+        Material instanced = material.clone();
+        instanced.setBoolean(USE_INSTANCING, true);
+        materials.add(material);
+        instancedMaterials.add(instanced);
+        return instanced;
+    }
+
+}
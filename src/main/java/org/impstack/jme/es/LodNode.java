@@ -0,0 +1,59 @@
+package org.impstack.jme.es;
+
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.util.clone.Cloner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node holding the spatial of each level of detail of a model. Only the spatial of the current level is attached,
+ * so renderers that don't read the cull hints of children (instanced and batched geometries) only see one level.
+ */
+class LodNode extends Node {
+
+    private List<Spatial> levels = new ArrayList<>();
+    private int level = -1;
+
+    LodNode(String name) {
+        super(name);
+    }
+
+    /**
+     * Adds the spatial of the next lower detail level.
+     */
+    void addLevel(Spatial spatial) {
+        levels.add(spatial);
+    }
+
+    int getLevelCount() {
+        return levels.size();
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * Attaches the spatial of the level and detaches the spatial of the previous level.
+     */
+    void setLevel(int level) {
+        int newLevel = Math.min(level, levels.size() - 1);
+        if (newLevel == this.level) {
+            return;
+        }
+        if (this.level >= 0) {
+            detachChild(levels.get(this.level));
+        }
+        this.level = newLevel;
+        attachChild(levels.get(newLevel));
+    }
+
+    @Override
+    public void cloneFields(Cloner cloner, Object original) {
+        super.cloneFields(cloner, original);
+        this.levels = cloner.clone(levels);
+    }
+
+}
@@ -0,0 +1,122 @@
+package org.impstack.jme.es;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects the level of detail of spatials based on their distance to the camera.
+ * Each call to {@link #update(Vector3f, int)} evaluates a slice of the spatials, continuing where the previous call
+ * stopped, so the cost of the selection is spread over multiple frames. A level is only applied when it changes.
+ * <p>
+ * This class is not thread-safe and should only be used on the render thread.
+ */
+class LodSelector {
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Spatial, Integer> indices = new IdentityHashMap<>();
+    private int cursor;
+
+    void add(Spatial spatial, LodSettings settings) {
+        indices.put(spatial, entries.size());
+        entries.add(new Entry(spatial, settings));
+    }
+
+    void remove(Spatial spatial) {
+        Integer index = indices.remove(spatial);
+        if (index == null) {
+            return;
+        }
+
+        // swap the last entry in the removed slot
+        Entry last = entries.remove(entries.size() - 1);
+        if (index < entries.size()) {
+            entries.set(index, last);
+            indices.put(last.spatial, index);
+        }
+    }
+
+    /**
+     * Applies the level again on the next evaluation, e.g. when the model of the spatial is replaced.
+     */
+    void invalidate(Spatial spatial) {
+        Integer index = indices.get(spatial);
+        if (index != null) {
+            entries.get(index).level = -1;
+        }
+    }
+
+    /**
+     * Evaluates the next slice of spatials.
+     * @param cameraLocation the location of the camera
+     * @param sliceSize the maximum number of spatials to evaluate
+     * @return the number of spatials that changed level
+     */
+    int update(Vector3f cameraLocation, int sliceSize) {
+        int changed = 0;
+        int count = Math.min(sliceSize, entries.size());
+        for (int i = 0; i < count; i++) {
+            if (cursor >= entries.size()) {
+                cursor = 0;
+            }
+            Entry entry = entries.get(cursor++);
+            int level = entry.settings.getLevel(cameraLocation.distance(entry.spatial.getWorldTranslation()));
+            if (level != entry.level) {
+                entry.level = level;
+                apply(entry.spatial, level);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+        indices.clear();
+        cursor = 0;
+    }
+
+    private static void apply(Spatial spatial, int level) {
+        spatial.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geometry) {
+                int levels = geometry.getMesh().getNumLodLevels();
+                if (levels > 0) {
+                    geometry.setLodLevel(Math.min(level, levels - 1));
+                }
+            }
+
+            @Override
+            public void visit(Node node) {
+                if (node instanceof LodNode) {
+                    ((LodNode) node).setLevel(level);
+                }
+            }
+        });
+    }
+
+    private static class Entry {
+
+        private final Spatial spatial;
+        private final LodSettings settings;
+        private int level = -1;
+
+        private Entry(Spatial spatial, LodSettings settings) {
+            this.spatial = spatial;
+            this.settings = settings;
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package org.impstack.jme.es;
+
+import java.util.Arrays;
+
+/**
+ * The level of detail settings of a model id.
+ * Level 0 is the full detail model. The distances specify from which camera distance the next level is used: level
+ * {@code i + 1} is used from {@code distances[i]}. The lower detail levels are either generated with the
+ * {@link jme3tools.optimize.LodGenerator} or loaded from separate model paths.
+ */
+public class LodSettings {
+
+    private final float[] distances;
+    private final float[] reductionValues;
+    private final String[] levelPaths;
+
+    private LodSettings(float[] distances, float[] reductionValues, String[] levelPaths) {
+        for (int i = 1; i < distances.length; i++) {
+            if (distances[i] < distances[i - 1]) {
+                throw new IllegalArgumentException("The LOD distances should be in ascending order");
+            }
+        }
+        this.distances = distances.clone();
+        this.reductionValues = reductionValues;
+        this.levelPaths = levelPaths;
+    }
+
+    /**
+     * Creates settings with levels that are generated by proportionally reducing the triangles of the model.
+     * @param distances the distance from which each lower detail level is used
+     * @param reductionValues the reduction value of each lower detail level, between 0 and 1
+     */
+    public static LodSettings generated(float[] distances, float... reductionValues) {
+        if (distances.length != reductionValues.length) {
+            throw new IllegalArgumentException("A reduction value is needed for each LOD distance");
+        }
+        return new LodSettings(distances, reductionValues.clone(), null);
+    }
+
+    /**
+     * Creates settings with levels that are loaded from separate model paths.
+     * @param distances the distance from which each lower detail level is used
+     * @param levelPaths the model path of each lower detail level
+     */
+    public static LodSettings levels(float[] distances, String... levelPaths) {
+        if (distances.length != levelPaths.length) {
+            throw new IllegalArgumentException("A level path is needed for each LOD distance");
+        }
+        return new LodSettings(distances, null, levelPaths.clone());
+    }
+
+    /**
+     * @return the level to use at the given camera distance
+     */
+    public int getLevel(float distance) {
+        int level = 0;
+        while (level < distances.length && distance >= distances[level]) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @return the number of levels, including the full detail level
+     */
+    public int getLevelCount() {
+        return distances.length + 1;
+    }
+
+    public boolean isGenerated() {
+        return reductionValues != null;
+    }
+
+    public float[] getReductionValues() {
+        return reductionValues == null ? null : reductionValues.clone();
+    }
+
+    public String[] getLevelPaths() {
+        return levelPaths == null ? null : levelPaths.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "LodSettings{" +
+                "distances=" + Arrays.toString(distances) +
+                ", reductionValues=" + Arrays.toString(reductionValues) +
+                ", levelPaths=" + Arrays.toString(levelPaths) +
+                '}';
+    }
+
+}
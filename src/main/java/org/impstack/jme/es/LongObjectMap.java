@@ -0,0 +1,138 @@
+package org.impstack.jme.es;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A hash map with primitive long keys using open addressing with linear probing. Looking up a value doesn't box the
+ * key. The map doesn't accept null values.
+ * <p>
+ * This class is not thread-safe.
+ */
+class LongObjectMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    LongObjectMap(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(2, (int) (capacity / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[tableSize];
+        values = new Object[tableSize];
+        mask = tableSize - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        for (int i = index(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+
+        int i = index(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int i = index(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<V> consumer) {
+        for (Object value : values) {
+            if (value != null) {
+                consumer.accept((V) value);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Removes the slot by moving the following entries of the probe sequence back, so no tombstones are needed.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        int i = (slot + 1) & mask;
+        while (values[i] != null) {
+            int home = index(keys[i]);
+            // move the entry when its home slot isn't between the free slot and its current slot
+            if (((i - home) & mask) >= ((i - free) & mask)) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+            i = (i + 1) & mask;
+        }
+        values[free] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int tableSize) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[tableSize];
+        values = new Object[tableSize];
+        mask = tableSize - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    private int index(long key) {
+        // spread the bits of sequential ids over the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+}
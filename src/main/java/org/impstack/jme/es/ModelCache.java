@@ -0,0 +1,136 @@
+package org.impstack.jme.es;
+
+import com.jme3.scene.Spatial;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of model prototypes, keyed by model id.
+ * The cache is bounded by the number of prototypes and by the total vertex count of the prototypes. When one of the
+ * bounds is exceeded, the least recently used prototypes are evicted. The most recently added prototype is always kept.
+ * <p>
+ * All methods are synchronized, so the cache can be used from model loading threads.
+ */
+public class ModelCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModelCache.class);
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_VERTICES = Long.MAX_VALUE;
+
+    private final Map<String, Spatial> prototypes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxVertices = DEFAULT_MAX_VERTICES;
+    private long vertexCount;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Returns the prototype of the model id and marks it as recently used.
+     * @param modelId the model id
+     * @return the prototype or null when it isn't cached
+     */
+    public synchronized Spatial get(String modelId) {
+        Spatial prototype = prototypes.get(modelId);
+        if (prototype != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return prototype;
+    }
+
+    /**
+     * Adds the prototype of the model id. When another thread added a prototype for the same model id in the meantime,
+     * that prototype is kept and returned.
+     * @param modelId the model id
+     * @param prototype the loaded prototype
+     * @return the cached prototype
+     */
+    public synchronized Spatial put(String modelId, Spatial prototype) {
+        Spatial current = prototypes.putIfAbsent(modelId, prototype);
+        if (current != null) {
+            return current;
+        }
+
+        vertexCount += prototype.getVertexCount();
+        evict();
+        return prototype;
+    }
+
+    public synchronized void remove(String modelId) {
+        Spatial prototype = prototypes.remove(modelId);
+        if (prototype != null) {
+            vertexCount -= prototype.getVertexCount();
+        }
+    }
+
+    public synchronized void clear() {
+        prototypes.clear();
+        vertexCount = 0;
+    }
+
+    public synchronized int size() {
+        return prototypes.size();
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The maximum number of entries should be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        evict();
+    }
+
+    public synchronized long getMaxVertices() {
+        return maxVertices;
+    }
+
+    public synchronized void setMaxVertices(long maxVertices) {
+        if (maxVertices < 0) {
+            throw new IllegalArgumentException("The maximum number of vertices can't be negative");
+        }
+        this.maxVertices = maxVertices;
+        evict();
+    }
+
+    /**
+     * @return the total vertex count of the cached prototypes
+     */
+    public synchronized long getVertexCount() {
+        return vertexCount;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Spatial>> it = prototypes.entrySet().iterator();
+        while (prototypes.size() > 1 && (prototypes.size() > maxEntries || vertexCount > maxVertices)) {
+            Map.Entry<String, Spatial> eldest = it.next();
+            LOG.trace("Evicting {} from the model cache", eldest.getKey());
+            vertexCount -= eldest.getValue().getVertexCount();
+            evictionCount++;
+            it.remove();
+        }
+    }
+
+}
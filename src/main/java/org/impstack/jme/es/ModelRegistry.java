@@ -19,4 +19,13 @@ public interface ModelRegistry {
      */
     public Spatial get(Model model);
 
+    /**
+     * Returns the level of detail settings of the model component.
+     * @param model the model component holding the key
+     * @return the level of detail settings or null when the model has a single level
+     */
+    public default LodSettings getLodSettings(Model model) {
+        return null;
+    }
+
 }
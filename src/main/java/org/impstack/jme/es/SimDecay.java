@@ -0,0 +1,45 @@
+package org.impstack.jme.es;
+
+import com.simsilica.es.EntityComponent;
+import com.simsilica.sim.SimTime;
+
+/**
+ * A Decay entity component with an absolute end time in sim time, handled by a {@link DecaySystem} that uses the
+ * {@link TimeSource#SIM_TIME}. When the sim time of a tick reaches the end time, the entity is removed.
+ * <p>
+ * The sim time of SiO2 is in nanoseconds, unlike the milliseconds of the {@link Decay} component. Use
+ * {@link #after(SimTime, double)} or {@link SimTime#toSimTime(double)} to convert a duration in seconds.
+ */
+public class SimDecay implements EntityComponent {
+
+    private final long endTime;
+
+    public SimDecay(long endTime) {
+        this.endTime = endTime;
+    }
+
+    /**
+     * Creates a decay that expires the given number of seconds after the current sim time.
+     */
+    public static SimDecay after(SimTime time, double seconds) {
+        return new SimDecay(time.getTime() + time.toSimTime(seconds));
+    }
+
+    /**
+     * @return the sim time in nanoseconds when the component expires
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public boolean isExpired(SimTime time) {
+        return time.getTime() >= endTime;
+    }
+
+    @Override
+    public String toString() {
+        return "SimDecay{" +
+                "endTime=" + endTime +
+                '}';
+    }
+}
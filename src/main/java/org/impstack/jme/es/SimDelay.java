@@ -0,0 +1,56 @@
+package org.impstack.jme.es;
+
+import com.simsilica.es.EntityComponent;
+import com.simsilica.sim.SimTime;
+
+import java.util.Arrays;
+
+/**
+ * A Delay entity component with an absolute end time in sim time, handled by a {@link DelaySystem} that uses the
+ * {@link TimeSource#SIM_TIME}. When the sim time of a tick reaches the end time, the entity components are added to the
+ * entity.
+ * <p>
+ * The sim time of SiO2 is in nanoseconds, unlike the milliseconds of the {@link Delay} component. Use
+ * {@link #after(SimTime, double, EntityComponent...)} or {@link SimTime#toSimTime(double)} to convert a duration in
+ * seconds.
+ */
+public class SimDelay implements EntityComponent {
+
+    private final EntityComponent[] components;
+    private final long endTime;
+
+    public SimDelay(long endTime, EntityComponent... components) {
+        this.endTime = endTime;
+        this.components = components;
+    }
+
+    /**
+     * Creates a delay that expires the given number of seconds after the current sim time.
+     */
+    public static SimDelay after(SimTime time, double seconds, EntityComponent... components) {
+        return new SimDelay(time.getTime() + time.toSimTime(seconds), components);
+    }
+
+    public EntityComponent[] getComponents() {
+        return components;
+    }
+
+    /**
+     * @return the sim time in nanoseconds when the component expires
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public boolean isExpired(SimTime time) {
+        return time.getTime() >= endTime;
+    }
+
+    @Override
+    public String toString() {
+        return "SimDelay{" +
+                "components=" + Arrays.toString(components) +
+                ", endTime=" + endTime +
+                '}';
+    }
+}
@@ -0,0 +1,89 @@
+package org.impstack.jme.es;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.BatchNode;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges the spatials of immobile entities in a {@link BatchNode} per grid cell on the x-z plane.
+ * Spatials that are attached to or detached from a cell should be marked with {@link #markDirty(Spatial)}, only the
+ * dirty cells are batched again in {@link #batch()}.
+ * <p>
+ * This class is not thread-safe and should only be used on the render thread.
+ */
+class StaticBatches {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StaticBatches.class);
+
+    private final Map<Long, BatchNode> cells = new HashMap<>();
+    private final Set<BatchNode> dirty = new LinkedHashSet<>();
+    private final float cellSize;
+
+    StaticBatches(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Returns the batch node of the cell holding the location. A new node is created and attached to the scene graph
+     * when needed.
+     */
+    BatchNode getNode(Vector3f location, Node sceneGraph) {
+        int x = (int) FastMath.floor(location.x / cellSize);
+        int z = (int) FastMath.floor(location.z / cellSize);
+        return cells.computeIfAbsent(((long) x << 32) | (z & 0xffffffffL), key -> {
+            BatchNode node = new BatchNode("static-" + x + "-" + z);
+            LOG.trace("Attach {} on {}", node, sceneGraph);
+            sceneGraph.attachChild(node);
+            return node;
+        });
+    }
+
+    /**
+     * Marks the cell holding the spatial as dirty. This should be called after a spatial is attached and before it is
+     * detached.
+     */
+    void markDirty(Spatial spatial) {
+        for (Spatial s = spatial; s != null; s = s.getParent()) {
+            if (s instanceof BatchNode) {
+                dirty.add((BatchNode) s);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Batches the dirty cells again.
+     * @return true when a cell was batched
+     */
+    boolean batch() {
+        if (dirty.isEmpty()) {
+            return false;
+        }
+        dirty.forEach(BatchNode::batch);
+        dirty.clear();
+        return true;
+    }
+
+    int getCellCount() {
+        return cells.size();
+    }
+
+    /**
+     * Detaches all batch nodes from the scene graph.
+     */
+    void clear() {
+        cells.values().forEach(Spatial::removeFromParent);
+        cells.clear();
+        dirty.clear();
+    }
+
+}
@@ -0,0 +1,198 @@
+package org.impstack.jme.es;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityId;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Divides entities in grid cells on the x-z plane and decides which cells are in range of the camera.
+ * A cell is attached when its distance to the camera cell is within the attach radius and detached when the distance
+ * exceeds the detach radius. Using a larger detach radius avoids attaching and detaching cells when the camera moves
+ * back and forth over a cell border. Cells within the preload radius are preloaded, so their models can be loaded
+ * before the cell comes into range.
+ * <p>
+ * The cells are only evaluated when the camera moves to another cell. The changes are reported to the
+ * {@link Listener}. This class is not thread-safe and should only be used on the render thread.
+ */
+class StreamingGrid {
+
+    /**
+     * Receives the entity changes of the grid. An entity is preloaded again when it moves into a preloaded cell, so
+     * preloading should ignore entities that are already loaded.
+     */
+    interface Listener {
+
+        void preload(Entity entity);
+
+        void attach(Entity entity);
+
+        void detach(Entity entity);
+
+    }
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Map<EntityId, Cell> entityCells = new HashMap<>();
+    private final float cellSize;
+    private final float attachRadius;
+    private final float detachRadius;
+    private final float preloadRadius;
+    private final Listener listener;
+
+    private boolean cameraSet;
+    private int cameraX;
+    private int cameraZ;
+
+    StreamingGrid(float cellSize, float attachRadius, float detachRadius, float preloadRadius, Listener listener) {
+        this.cellSize = cellSize;
+        this.attachRadius = attachRadius;
+        this.detachRadius = detachRadius;
+        this.preloadRadius = preloadRadius;
+        this.listener = listener;
+    }
+
+    /**
+     * Updates the camera location and evaluates all cells when the camera moved to another cell.
+     */
+    void update(Vector3f cameraLocation) {
+        int x = toCell(cameraLocation.x);
+        int z = toCell(cameraLocation.z);
+        if (cameraSet && x == cameraX && z == cameraZ) {
+            return;
+        }
+
+        cameraSet = true;
+        cameraX = x;
+        cameraZ = z;
+        cells.values().forEach(this::evaluate);
+    }
+
+    void add(Entity entity, Vector3f location) {
+        Cell cell = getCell(location);
+        cell.entities.put(entity.getId(), entity);
+        entityCells.put(entity.getId(), cell);
+
+        if (cell.preloaded) {
+            listener.preload(entity);
+        }
+        if (cell.attached) {
+            listener.attach(entity);
+        }
+    }
+
+    /**
+     * Moves the entity to the cell of the location. The entity is only attached or detached when the attach state of
+     * the new cell differs from the previous one.
+     */
+    void move(Entity entity, Vector3f location) {
+        Cell previous = entityCells.get(entity.getId());
+        if (previous == null) {
+            add(entity, location);
+            return;
+        }
+
+        Cell cell = getCell(location);
+        if (cell == previous) {
+            return;
+        }
+
+        removeFromCell(entity.getId(), previous);
+        cell.entities.put(entity.getId(), entity);
+        entityCells.put(entity.getId(), cell);
+
+        if (cell.preloaded && !previous.preloaded) {
+            listener.preload(entity);
+        }
+        if (cell.attached && !previous.attached) {
+            listener.attach(entity);
+        } else if (!cell.attached && previous.attached) {
+            listener.detach(entity);
+        }
+    }
+
+    void remove(Entity entity) {
+        Cell cell = entityCells.remove(entity.getId());
+        if (cell == null) {
+            return;
+        }
+
+        removeFromCell(entity.getId(), cell);
+        if (cell.attached) {
+            listener.detach(entity);
+        }
+    }
+
+    int getCellCount() {
+        return cells.size();
+    }
+
+    void clear() {
+        cells.clear();
+        entityCells.clear();
+        cameraSet = false;
+    }
+
+    private void evaluate(Cell cell) {
+        if (!cameraSet) {
+            return;
+        }
+
+        float dx = cell.x - cameraX;
+        float dz = cell.z - cameraZ;
+        float distance = FastMath.sqrt(dx * dx + dz * dz) * cellSize;
+
+        if (!cell.preloaded && distance <= preloadRadius) {
+            cell.preloaded = true;
+            cell.entities.values().forEach(listener::preload);
+        }
+        if (!cell.attached && distance <= attachRadius) {
+            cell.attached = true;
+            cell.entities.values().forEach(listener::attach);
+        } else if (cell.attached && distance > detachRadius) {
+            cell.attached = false;
+            cell.entities.values().forEach(listener::detach);
+        }
+    }
+
+    private Cell getCell(Vector3f location) {
+        int x = toCell(location.x);
+        int z = toCell(location.z);
+        return cells.computeIfAbsent(((long) x << 32) | (z & 0xffffffffL), key -> {
+            // evaluate a new cell before any entity is added, the entities are notified with the state of the cell
+            Cell cell = new Cell(x, z);
+            evaluate(cell);
+            return cell;
+        });
+    }
+
+    private void removeFromCell(EntityId entityId, Cell cell) {
+        cell.entities.remove(entityId);
+        if (cell.entities.isEmpty()) {
+            cells.remove(((long) cell.x << 32) | (cell.z & 0xffffffffL));
+        }
+    }
+
+    private int toCell(float value) {
+        return (int) FastMath.floor(value / cellSize);
+    }
+
+    private static class Cell {
+
+        private final int x;
+        private final int z;
+        private final Map<EntityId, Entity> entities = new LinkedHashMap<>();
+        private boolean attached;
+        private boolean preloaded;
+
+        private Cell(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+    }
+
+}
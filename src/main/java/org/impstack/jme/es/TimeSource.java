@@ -0,0 +1,22 @@
+package org.impstack.jme.es;
+
+/**
+ * The clock that is used by the {@link DecaySystem} and the {@link DelaySystem} to check if a component is expired.
+ */
+public enum TimeSource {
+
+    /**
+     * The wall clock in milliseconds ({@link System#currentTimeMillis()}), used by the {@link Decay} and {@link Delay}
+     * components.
+     */
+    SYSTEM_TIME,
+
+    /**
+     * The time of the game loop in nanoseconds ({@link com.simsilica.sim.SimTime#getTime()}), used by the
+     * {@link SimDecay} and {@link SimDelay} components. Note that the end times of these components are in nanoseconds,
+     * while the {@link Decay} and {@link Delay} components use milliseconds. Expiry only depends on the ticks of the
+     * game loop, which makes it deterministic: the systems can be replayed or fast-forwarded.
+     */
+    SIM_TIME
+
+}
@@ -0,0 +1,279 @@
+package org.impstack.jme.es;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Spatial;
+import com.simsilica.es.EntityId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies entity positions to the spatials of the entities.
+ * The spatials are looked up by entity id in a primitive map and a transform is only written when it differs from the
+ * current one. When interpolation is enabled, a new position isn't applied directly but the spatial moves from its
+ * current transform to the new position over the interpolation period, smoothing out positions that are updated at a
+ * lower rate than the frame rate.
+ * <p>
+ * When a camera is set for visibility culling, positions of spatials outside the view frustum (extended with the
+ * margin) are deferred: both the current bound of the spatial and the bound at the new position should be outside the
+ * extended frustum, so a spatial that moves out of view is still updated. A deferred position is applied when the
+ * spatial comes within the extended frustum, or after the off-screen interval when the interval is positive.
+ * <p>
+ * This class is not thread-safe and should only be used on the render thread.
+ */
+class TransformSync {
+
+    private final LongObjectMap<Entry> entries = new LongObjectMap<>();
+    private final List<Entry> interpolating = new ArrayList<>();
+    private final List<Entry> deferred = new ArrayList<>();
+    private final Vector3f tmpLocation = new Vector3f();
+    private final Quaternion tmpRotation = new Quaternion();
+    private final BoundingSphere tmpBound = new BoundingSphere();
+
+    private boolean interpolation;
+    private float interpolationPeriod;
+    private Camera cullingCamera;
+    private float cullingMargin;
+    private float offscreenInterval;
+    private long writeCount;
+    private long skipCount;
+    private long deferCount;
+
+    TransformSync(boolean interpolation, float interpolationPeriod) {
+        this.interpolation = interpolation;
+        this.interpolationPeriod = interpolationPeriod;
+    }
+
+    /**
+     * Adds the spatial of the entity and applies the transform directly.
+     */
+    void add(EntityId entityId, Spatial spatial, Vector3f location, Quaternion rotation) {
+        Entry entry = new Entry(spatial);
+        entry.location.set(location);
+        entry.rotation.set(rotation);
+        spatial.setLocalTranslation(location);
+        spatial.setLocalRotation(rotation);
+        entries.put(entityId.getId(), entry);
+    }
+
+    void remove(EntityId entityId) {
+        Entry entry = entries.remove(entityId.getId());
+        if (entry != null) {
+            stopInterpolating(entry);
+            stopDeferring(entry);
+        }
+    }
+
+    /**
+     * Sets the transform of the spatial of the entity. The transform is deferred when the spatial is off-screen.
+     * @return false when the entity is unknown or the transform didn't change
+     */
+    boolean set(EntityId entityId, Vector3f location, Quaternion rotation) {
+        Entry entry = entries.get(entityId.getId());
+        if (entry == null) {
+            return false;
+        }
+        if (entry.location.equals(location) && entry.rotation.equals(rotation)) {
+            skipCount++;
+            return false;
+        }
+
+        entry.location.set(location);
+        entry.rotation.set(rotation);
+        if (cullingCamera != null && !isVisible(entry)) {
+            deferCount++;
+            stopInterpolating(entry);
+            if (entry.deferredIndex < 0) {
+                entry.deferredIndex = deferred.size();
+                entry.deferredTime = 0;
+                deferred.add(entry);
+            }
+            return true;
+        }
+
+        stopDeferring(entry);
+        writeCount++;
+        if (!interpolation) {
+            entry.spatial.setLocalTranslation(location);
+            entry.spatial.setLocalRotation(rotation);
+            return true;
+        }
+
+        // interpolate from the current transform of the spatial
+        entry.fromLocation.set(entry.spatial.getLocalTranslation());
+        entry.fromRotation.set(entry.spatial.getLocalRotation());
+        entry.progress = 0;
+        if (entry.interpolatingIndex < 0) {
+            entry.interpolatingIndex = interpolating.size();
+            interpolating.add(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Advances the interpolating spatials and applies the deferred transforms of spatials that came in view.
+     */
+    void update(float tpf) {
+        float step = interpolationPeriod > 0 ? tpf / interpolationPeriod : 1;
+        for (int i = interpolating.size() - 1; i >= 0; i--) {
+            Entry entry = interpolating.get(i);
+            entry.progress = Math.min(1, entry.progress + step);
+            if (entry.progress >= 1) {
+                entry.spatial.setLocalTranslation(entry.location);
+                entry.spatial.setLocalRotation(entry.rotation);
+                stopInterpolating(entry);
+            } else {
+                entry.spatial.setLocalTranslation(
+                        tmpLocation.interpolateLocal(entry.fromLocation, entry.location, entry.progress));
+                tmpRotation.slerp(entry.fromRotation, entry.rotation, entry.progress);
+                entry.spatial.setLocalRotation(tmpRotation);
+            }
+        }
+
+        for (int i = deferred.size() - 1; i >= 0; i--) {
+            Entry entry = deferred.get(i);
+            entry.deferredTime += tpf;
+            boolean due = offscreenInterval > 0 && entry.deferredTime >= offscreenInterval;
+            if (due || cullingCamera == null || isVisible(entry)) {
+                // apply the deferred transform directly, the spatial was off-screen
+                writeCount++;
+                entry.spatial.setLocalTranslation(entry.location);
+                entry.spatial.setLocalRotation(entry.rotation);
+                stopDeferring(entry);
+            }
+        }
+    }
+
+    void setInterpolation(boolean interpolation) {
+        this.interpolation = interpolation;
+    }
+
+    void setInterpolationPeriod(float interpolationPeriod) {
+        this.interpolationPeriod = interpolationPeriod;
+    }
+
+    /**
+     * Sets the camera that is used to defer the transforms of off-screen spatials, or null to apply all transforms.
+     */
+    void setCullingCamera(Camera cullingCamera) {
+        this.cullingCamera = cullingCamera;
+    }
+
+    void setCullingMargin(float cullingMargin) {
+        this.cullingMargin = cullingMargin;
+    }
+
+    void setOffscreenInterval(float offscreenInterval) {
+        this.offscreenInterval = offscreenInterval;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int getInterpolatingCount() {
+        return interpolating.size();
+    }
+
+    int getDeferredCount() {
+        return deferred.size();
+    }
+
+    long getWriteCount() {
+        return writeCount;
+    }
+
+    long getSkipCount() {
+        return skipCount;
+    }
+
+    long getDeferCount() {
+        return deferCount;
+    }
+
+    void clear() {
+        entries.clear();
+        interpolating.clear();
+        deferred.clear();
+    }
+
+    /**
+     * Checks if the current bound of the spatial or its bound at the new location is within the view frustum extended
+     * with the margin.
+     */
+    private boolean isVisible(Entry entry) {
+        BoundingVolume bound = entry.spatial.getWorldBound();
+        float radius = 0;
+        if (bound instanceof BoundingSphere) {
+            radius = ((BoundingSphere) bound).getRadius();
+        } else if (bound instanceof BoundingBox) {
+            radius = ((BoundingBox) bound).getExtent(tmpLocation).length();
+        }
+        Vector3f current = bound != null ? bound.getCenter() : entry.spatial.getWorldTranslation();
+        return isVisible(current, radius) || isVisible(entry.location, radius);
+    }
+
+    private boolean isVisible(Vector3f center, float radius) {
+        tmpBound.setCenter(center);
+        tmpBound.setRadius(radius + cullingMargin);
+
+        // the plane state of the camera is used by the renderer, restore it after the check
+        int planeState = cullingCamera.getPlaneState();
+        cullingCamera.setPlaneState(0);
+        Camera.FrustumIntersect intersect = cullingCamera.contains(tmpBound);
+        cullingCamera.setPlaneState(planeState);
+        return intersect != Camera.FrustumIntersect.Outside;
+    }
+
+    private void stopInterpolating(Entry entry) {
+        entry.interpolatingIndex = removeAt(interpolating, entry.interpolatingIndex, true);
+    }
+
+    private void stopDeferring(Entry entry) {
+        entry.deferredIndex = removeAt(deferred, entry.deferredIndex, false);
+    }
+
+    /**
+     * Removes the entry at the index by swapping the last entry in its slot.
+     * @return -1, the index of an entry that isn't in a list
+     */
+    private static int removeAt(List<Entry> list, int index, boolean interpolatingList) {
+        if (index < 0) {
+            return -1;
+        }
+        Entry last = list.remove(list.size() - 1);
+        if (index < list.size()) {
+            list.set(index, last);
+            if (interpolatingList) {
+                last.interpolatingIndex = index;
+            } else {
+                last.deferredIndex = index;
+            }
+        }
+        return -1;
+    }
+
+    private static class Entry {
+
+        private final Spatial spatial;
+        private final Vector3f location = new Vector3f();
+        private final Quaternion rotation = new Quaternion();
+        private final Vector3f fromLocation = new Vector3f();
+        private final Quaternion fromRotation = new Quaternion();
+        private float progress;
+        private int interpolatingIndex = -1;
+        private int deferredIndex = -1;
+        private float deferredTime;
+
+        private Entry(Spatial spatial) {
+            this.spatial = spatial;
+        }
+
+    }
+
+}
@@ -2,6 +2,9 @@ package org.impstack.jme.es;
 
 import com.jme3.app.Application;
 import com.jme3.app.state.BaseAppState;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.simsilica.es.*;
@@ -10,32 +13,126 @@ import org.impstack.jme.ApplicationContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * An application state that handles visual entities.
- * It also provides a queue system to attach objects to the scene graph. Only one object is attached each frame.
- * Attaching a lot of objects to the scenegraph has an impact on performance.
+ * It also provides a queue system to attach objects to and detach objects from the scene graph. Each frame the queue is
+ * drained for at most the attach budget ({@link #setAttachBudget(long, TimeUnit)}), with a minimum of one change.
+ * Attaching a lot of objects to the scenegraph has an impact on performance. Detaches are queued separately and applied
+ * before the attaches, so removed entities don't wait for the queued attaches. The time to rebuild the instanced nodes
+ * and batches after the changes is part of the budget.
  * <p>
  * All entities with a {@link Model} component will be handled and loaded by the {@link ModelRegistry}.
  * Loaded models can be retrieved by using {@link #getModel(EntityId)}.
  * <p>
- * Entities will be directly added to the given scene graph when they also have a {@link Position} component next to the
- * {@link Model} component.
+ * Entities will be directly added to the given scene graph when they also have a {@link Position} (or
+ * {@link CompactPosition}) component next to the {@link Model} component.
+ * <p>
+ * When a load executor is set ({@link #setLoadExecutor(Executor)}), models are loaded asynchronously. Each entity then
+ * gets an empty node that holds an optional placeholder while the model is loading, the loaded model is attached to the
+ * node on the render thread through the attach queue. When the entity is removed before its model is loaded, the load
+ * is cancelled.
+ * <p>
+ * When instancing is enabled ({@link #setInstancing(boolean)}), the spatials of entities with the same model id are
+ * attached to a shared {@link com.jme3.scene.instancing.InstancedNode} and rendered as instanced geometries. Position
+ * changes update the instance transforms without changing the scene graph. Instancing is enabled on clones of the
+ * materials, spatials with a material that doesn't support the {@code UseInstancing} parameter are attached to the
+ * scene graph instead.
+ * <p>
+ * When static batching is enabled ({@link #setStaticBatching(boolean)}), the spatials of entities with an
+ * {@link Immobile} component are merged in a {@link com.jme3.scene.BatchNode} per grid cell. A cell is only batched
+ * again when an entity in the cell is added or removed.
+ * <p>
+ * When streaming is enabled ({@link #setStreaming(boolean)}), only the entities in the grid cells around the camera
+ * are attached. Cells are attached within the attach radius and detached outside the detach radius. The models of
+ * entities with a {@link Position} are loaded when their cell comes within the preload radius, until then
+ * {@link #getModel(EntityId)} returns an empty node (holding the placeholder) that the model is attached to. Without a
+ * load executor, the models are loaded through the attach queue, within the attach budget.
+ * <p>
+ * The level of detail of attached entities with {@link LodSettings} in the {@link ModelRegistry} is selected based on
+ * the distance to the camera. Each frame a slice of these entities is evaluated ({@link #setLodSliceSize(int)}).
+ * Instanced and batched entities are grouped once and keep the full detail level.
+ * <p>
+ * Position changes are only written to the spatial when the transform differs. When interpolation is enabled
+ * ({@link #setInterpolation(boolean)}), spatials move smoothly to a new position over the interpolation period, which
+ * should match the rate at which positions are updated.
+ * <p>
+ * When visibility culling is enabled ({@link #setVisibilityCulling(boolean)}), position changes of entities outside the
+ * view frustum extended with the culling margin are deferred. They are applied when the entity comes in view, or at the
+ * reduced rate of the off-screen update interval.
+ * <p>
+ * The position component type can be set to {@link CompactPosition} ({@link #setPositionType(Class)}) instead of
+ * {@link Position}. Compact positions are read without allocating.
  */
 public class VisualState extends BaseAppState {
 
     private static final Logger LOG = LoggerFactory.getLogger(VisualState.class);
+    private static final long DEFAULT_ATTACH_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final float DRAIN_RATE_SMOOTHING = 0.1f;
+    private static final float REBUILD_TIME_SMOOTHING = 0.1f;
+    public static final float DEFAULT_STATIC_CELL_SIZE = 64f;
+    public static final float DEFAULT_STREAMING_CELL_SIZE = 64f;
+    public static final float DEFAULT_ATTACH_RADIUS = 256f;
+    public static final float DEFAULT_DETACH_RADIUS = 320f;
+    public static final float DEFAULT_PRELOAD_RADIUS = 384f;
+    public static final int DEFAULT_LOD_SLICE_SIZE = 256;
+    public static final float DEFAULT_INTERPOLATION_PERIOD = 0.05f;
+    public static final float DEFAULT_CULLING_MARGIN = 10f;
+    public static final float DEFAULT_OFFSCREEN_UPDATE_INTERVAL = 0.5f;
 
     private final EntityData entityData;
-    private final Queue<Spatial> attachQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<SceneChange> attachQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<SceneChange> detachQueue = new ConcurrentLinkedQueue<>();
+    private final Map<Spatial, SceneChange> queuedAttaches = new ConcurrentHashMap<>();
+    private final AtomicInteger attachQueueSize = new AtomicInteger();
+    private final Map<EntityId, Spatial> attachedSpatials = new HashMap<>();
+    private final Map<EntityId, CompletableFuture<Spatial>> pendingLoads = new ConcurrentHashMap<>();
+    private final Map<EntityId, Runnable> deferredLoads = new HashMap<>();
+    private final Vector3f location = new Vector3f();
+    private final Quaternion rotation = new Quaternion();
 
     private Node sceneGraph;
     private ModelRegistry modelRegistry;
     private EntityContainer<Spatial> models;
     private EntitySet attachedModels;
+    private Executor loadExecutor;
+    private Spatial placeholder;
+    private long attachBudgetNanos = DEFAULT_ATTACH_BUDGET_NANOS;
+    private int lastDrainCount;
+    private float drainRate;
+    private long rebuildNanos;
+    private boolean instancing;
+    private InstancedModels instancedModels;
+    private boolean staticBatching;
+    private float staticCellSize = DEFAULT_STATIC_CELL_SIZE;
+    private StaticBatches staticBatches;
+    private boolean streaming;
+    private float streamingCellSize = DEFAULT_STREAMING_CELL_SIZE;
+    private float attachRadius = DEFAULT_ATTACH_RADIUS;
+    private float detachRadius = DEFAULT_DETACH_RADIUS;
+    private float preloadRadius = DEFAULT_PRELOAD_RADIUS;
+    private Camera camera;
+    private StreamingGrid streamingGrid;
+    private int lodSliceSize = DEFAULT_LOD_SLICE_SIZE;
+    private LodSelector lodSelector;
+    private boolean interpolation;
+    private float interpolationPeriod = DEFAULT_INTERPOLATION_PERIOD;
+    private TransformSync transformSync;
+    private boolean visibilityCulling;
+    private float cullingMargin = DEFAULT_CULLING_MARGIN;
+    private float offscreenUpdateInterval = DEFAULT_OFFSCREEN_UPDATE_INTERVAL;
+    private Class<? extends EntityComponent> positionType = Position.class;
 
     public VisualState(EntityData entityData) {
         this.entityData = entityData;
@@ -65,13 +162,32 @@ public class VisualState extends BaseAppState {
         if (sceneGraph == null) {
             sceneGraph = ApplicationContext.INSTANCE.getRootNode();
         }
+        if (camera == null) {
+            camera = app.getCamera();
+        }
 
         models = new ModelContainer(entityData);
-        attachedModels = entityData.getEntities(Model.class, Position.class);
+        attachedModels = entityData.getEntities(Model.class, positionType);
     }
 
     @Override
     protected void onEnable() {
+        if (instancing) {
+            instancedModels = new InstancedModels();
+        }
+        if (staticBatching) {
+            staticBatches = new StaticBatches(staticCellSize);
+        }
+        lodSelector = new LodSelector();
+        transformSync = new TransformSync(interpolation, interpolationPeriod);
+        transformSync.setCullingCamera(visibilityCulling ? camera : null);
+        transformSync.setCullingMargin(cullingMargin);
+        transformSync.setOffscreenInterval(offscreenUpdateInterval);
+        if (streaming) {
+            streamingGrid = new StreamingGrid(streamingCellSize, attachRadius, detachRadius, preloadRadius,
+                    new StreamingListener());
+        }
+
         // start the model container
         models.start();
 
@@ -90,21 +206,44 @@ public class VisualState extends BaseAppState {
             addAttachedEntities(attachedModels.getAddedEntities());
             updateAttachedEntities(attachedModels.getChangedEntities());
         }
-
-        // attach objects
-        if (!attachQueue.isEmpty()) {
-            sceneGraph.attachChild(attachQueue.poll());
+        transformSync.update(tpf);
+        if (streamingGrid != null) {
+            streamingGrid.update(camera.getLocation());
         }
+        lodSelector.update(camera.getLocation(), lodSliceSize);
+
+        // attach and detach objects
+        drainAttachQueue(tpf);
     }
 
     @Override
     protected void onDisable() {
-        // stop attached model entity set
-        removeAttachedEntities(attachedModels);
+        // stop attached model entity set, the queued changes are dropped and the spatials are detached immediately
+        attachQueue.clear();
+        detachQueue.clear();
+        queuedAttaches.clear();
+        attachQueueSize.set(0);
+        attachedSpatials.values().forEach(Spatial::removeFromParent);
+        attachedSpatials.clear();
         attachedModels.release();
+        if (instancedModels != null) {
+            instancedModels.clear();
+            instancedModels = null;
+        }
+        if (staticBatches != null) {
+            staticBatches.clear();
+            staticBatches = null;
+        }
+        if (streamingGrid != null) {
+            streamingGrid.clear();
+            streamingGrid = null;
+        }
+        lodSelector.clear();
+        transformSync.clear();
 
         // clean up all models
         models.stop();
+        deferredLoads.clear();
     }
 
     @Override
@@ -112,7 +251,302 @@ public class VisualState extends BaseAppState {
     }
 
     public void attach(Spatial spatial) {
-        attachQueue.offer(spatial);
+        enqueue(new SceneChange(null, spatial, false));
+    }
+
+    /**
+     * Queues the removal of the spatial from its parent. A queued attach of the spatial is cancelled.
+     */
+    public void detach(Spatial spatial) {
+        SceneChange queuedAttach = queuedAttaches.remove(spatial);
+        if (queuedAttach != null) {
+            queuedAttach.cancelled = true;
+        }
+        enqueue(new SceneChange(null, spatial, false, true));
+    }
+
+    public long getAttachBudget(TimeUnit unit) {
+        return unit.convert(attachBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the time that can be spent each frame to attach and detach queued spatials, including the time to rebuild
+     * the instanced nodes and batches. At least one queued change is applied each frame.
+     */
+    public void setAttachBudget(long time, TimeUnit unit) {
+        this.attachBudgetNanos = unit.toNanos(time);
+    }
+
+    /**
+     * @return the number of queued attach and detach changes
+     */
+    public int getAttachQueueSize() {
+        return attachQueueSize.get();
+    }
+
+    /**
+     * @return the number of queued changes that were applied in the last frame
+     */
+    public int getLastDrainCount() {
+        return lastDrainCount;
+    }
+
+    /**
+     * @return the smoothed number of queued changes that are applied per second
+     */
+    public float getDrainRate() {
+        return drainRate;
+    }
+
+    /**
+     * @return the smoothed time to rebuild the instanced nodes and batches after the queued changes of a frame
+     */
+    public long getRebuildTime(TimeUnit unit) {
+        return unit.convert(rebuildNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isInstancing() {
+        return instancing;
+    }
+
+    /**
+     * Groups the spatials of entities with the same model id in instanced nodes. This should be set before the state
+     * is enabled.
+     */
+    public void setInstancing(boolean instancing) {
+        this.instancing = instancing;
+    }
+
+    public boolean isStaticBatching() {
+        return staticBatching;
+    }
+
+    /**
+     * Merges the spatials of entities with an {@link Immobile} component in static batches. This should be set before
+     * the state is enabled.
+     */
+    public void setStaticBatching(boolean staticBatching) {
+        this.staticBatching = staticBatching;
+    }
+
+    public float getStaticCellSize() {
+        return staticCellSize;
+    }
+
+    /**
+     * Sets the size of the grid cells that are used for static batching. This should be set before the state is
+     * enabled.
+     */
+    public void setStaticCellSize(float staticCellSize) {
+        if (staticCellSize <= 0) {
+            throw new IllegalArgumentException("The static cell size should be positive");
+        }
+        this.staticCellSize = staticCellSize;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Only attaches the entities in the grid cells around the camera. This should be set before the state is enabled.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public float getStreamingCellSize() {
+        return streamingCellSize;
+    }
+
+    /**
+     * Sets the size of the grid cells that are used for streaming. This should be set before the state is enabled.
+     */
+    public void setStreamingCellSize(float streamingCellSize) {
+        if (streamingCellSize <= 0) {
+            throw new IllegalArgumentException("The streaming cell size should be positive");
+        }
+        this.streamingCellSize = streamingCellSize;
+    }
+
+    public float getAttachRadius() {
+        return attachRadius;
+    }
+
+    public float getDetachRadius() {
+        return detachRadius;
+    }
+
+    public float getPreloadRadius() {
+        return preloadRadius;
+    }
+
+    /**
+     * Sets the streaming radii around the camera. This should be set before the state is enabled.
+     * @param attachRadius cells within this radius are attached
+     * @param detachRadius cells outside this radius are detached, at least the attach radius
+     * @param preloadRadius models of cells within this radius are loaded, at least the attach radius
+     */
+    public void setStreamingRadius(float attachRadius, float detachRadius, float preloadRadius) {
+        if (detachRadius < attachRadius || preloadRadius < attachRadius) {
+            throw new IllegalArgumentException("The detach and preload radius should be at least the attach radius");
+        }
+        this.attachRadius = attachRadius;
+        this.detachRadius = detachRadius;
+        this.preloadRadius = preloadRadius;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Sets the camera that is used for streaming and level of detail selection. When not set, the camera of the
+     * application is used.
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    public int getLodSliceSize() {
+        return lodSliceSize;
+    }
+
+    /**
+     * Sets the maximum number of entities of which the level of detail is selected each frame.
+     */
+    public void setLodSliceSize(int lodSliceSize) {
+        if (lodSliceSize < 1) {
+            throw new IllegalArgumentException("The LOD slice size should be at least 1");
+        }
+        this.lodSliceSize = lodSliceSize;
+    }
+
+    public boolean isInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * Moves spatials smoothly to a new position over the interpolation period instead of applying the position
+     * directly.
+     */
+    public void setInterpolation(boolean interpolation) {
+        this.interpolation = interpolation;
+        if (transformSync != null) {
+            transformSync.setInterpolation(interpolation);
+        }
+    }
+
+    public float getInterpolationPeriod() {
+        return interpolationPeriod;
+    }
+
+    /**
+     * Sets the time in seconds to move a spatial to a new position. This is typically the interval between position
+     * updates, e.g. 0.05 for positions that are updated at 20 Hz.
+     */
+    public void setInterpolationPeriod(float interpolationPeriod) {
+        if (interpolationPeriod < 0) {
+            throw new IllegalArgumentException("The interpolation period can't be negative");
+        }
+        this.interpolationPeriod = interpolationPeriod;
+        if (transformSync != null) {
+            transformSync.setInterpolationPeriod(interpolationPeriod);
+        }
+    }
+
+    public boolean isVisibilityCulling() {
+        return visibilityCulling;
+    }
+
+    /**
+     * Defers the position changes of entities that are outside the view frustum of the camera, extended with the
+     * culling margin.
+     */
+    public void setVisibilityCulling(boolean visibilityCulling) {
+        this.visibilityCulling = visibilityCulling;
+        if (transformSync != null) {
+            transformSync.setCullingCamera(visibilityCulling ? camera : null);
+        }
+    }
+
+    public float getCullingMargin() {
+        return cullingMargin;
+    }
+
+    /**
+     * Sets the distance the view frustum is extended with for visibility culling. Entities within this distance of the
+     * frustum get their position changes applied directly.
+     */
+    public void setCullingMargin(float cullingMargin) {
+        if (cullingMargin < 0) {
+            throw new IllegalArgumentException("The culling margin can't be negative");
+        }
+        this.cullingMargin = cullingMargin;
+        if (transformSync != null) {
+            transformSync.setCullingMargin(cullingMargin);
+        }
+    }
+
+    public float getOffscreenUpdateInterval() {
+        return offscreenUpdateInterval;
+    }
+
+    /**
+     * Sets the time in seconds after which a deferred position of an off-screen entity is applied. When 0, deferred
+     * positions are only applied when the entity comes in view.
+     */
+    public void setOffscreenUpdateInterval(float offscreenUpdateInterval) {
+        if (offscreenUpdateInterval < 0) {
+            throw new IllegalArgumentException("The off-screen update interval can't be negative");
+        }
+        this.offscreenUpdateInterval = offscreenUpdateInterval;
+        if (transformSync != null) {
+            transformSync.setOffscreenInterval(offscreenUpdateInterval);
+        }
+    }
+
+    /**
+     * @return the number of position changes that were written to the spatials
+     */
+    public long getAppliedTransformCount() {
+        return transformSync != null ? transformSync.getWriteCount() : 0;
+    }
+
+    /**
+     * @return the number of position changes that were skipped because the transform didn't change
+     */
+    public long getSkippedTransformCount() {
+        return transformSync != null ? transformSync.getSkipCount() : 0;
+    }
+
+    /**
+     * @return the number of position changes that were deferred because the entity was off-screen
+     */
+    public long getDeferredTransformCount() {
+        return transformSync != null ? transformSync.getDeferCount() : 0;
+    }
+
+    public Class<? extends EntityComponent> getPositionType() {
+        return positionType;
+    }
+
+    /**
+     * Sets the position component type of the entities, either {@link Position} or {@link CompactPosition}. This
+     * should be set before the state is initialized.
+     */
+    public void setPositionType(Class<? extends EntityComponent> positionType) {
+        if (positionType != Position.class && positionType != CompactPosition.class) {
+            throw new IllegalArgumentException("Unsupported position type " + positionType);
+        }
+        this.positionType = positionType;
+    }
+
+    /**
+     * @return the number of entity spatials that are attached or queued to be attached
+     */
+    public int getAttachedEntityCount() {
+        return attachedSpatials.size();
     }
 
     public Node getSceneGraph() {
@@ -131,41 +565,196 @@ public class VisualState extends BaseAppState {
         this.modelRegistry = modelRegistry;
     }
 
+    public Executor getLoadExecutor() {
+        return loadExecutor;
+    }
+
+    /**
+     * Sets the executor used to load models in the background. When null, models are loaded on the render thread.
+     * This should be set before the state is enabled.
+     */
+    public void setLoadExecutor(Executor loadExecutor) {
+        this.loadExecutor = loadExecutor;
+    }
+
+    public Spatial getPlaceholder() {
+        return placeholder;
+    }
+
+    /**
+     * Sets a spatial that is shown while a model is loaded asynchronously. A clone of the placeholder is used for each
+     * entity.
+     */
+    public void setPlaceholder(Spatial placeholder) {
+        this.placeholder = placeholder;
+    }
+
+    /**
+     * @return the number of models that are being loaded in the background
+     */
+    public int getPendingLoadCount() {
+        return pendingLoads.size();
+    }
+
+    /**
+     * Returns the spatial of the entity. When models are loaded asynchronously, this is the node that holds the
+     * (placeholder of the) model.
+     */
     public Spatial getModel(EntityId entityId) {
         return models.getObject(entityId);
     }
 
     private void addAttachedEntities(Set<Entity> addedEntities) {
         addedEntities.forEach(e -> {
-            Position position = e.get(Position.class);
+            readPosition(e);
 
             Spatial spatial = getModel(e.getId());
-            spatial.setLocalTranslation(position.getLocation());
-            spatial.setLocalRotation(position.getRotation());
+            transformSync.add(e.getId(), spatial, location, rotation);
+
+            if (streamingGrid != null) {
+                streamingGrid.add(e, location);
+            } else {
+                attachEntity(e, spatial);
+            }
+        });
+    }
 
+    private void attachEntity(Entity e, Spatial spatial) {
+        attachedSpatials.put(e.getId(), spatial);
+        if (staticBatches != null && entityData.getComponent(e.getId(), Immobile.class) != null) {
+            Node node = staticBatches.getNode(readPosition(e), sceneGraph);
+            LOG.trace("Attach {} on {}", spatial, node);
+            enqueue(new SceneChange(node, spatial, false));
+        } else if (instancedModels != null && InstancedModels.canInstance(spatial)) {
+            Node node = instancedModels.getNode(e.get(Model.class).getModelId(), sceneGraph);
+            LOG.trace("Attach {} on {}", spatial, node);
+            enqueue(new SceneChange(node, spatial, false));
+        } else {
+            // instanced and batched geometries are grouped by mesh level, only select levels of standalone spatials
+            LodSettings lodSettings = modelRegistry.getLodSettings(e.get(Model.class));
+            if (lodSettings != null) {
+                lodSelector.add(spatial, lodSettings);
+            }
             LOG.trace("Attach {} on {}", spatial, sceneGraph);
             attach(spatial);
-        });
+        }
     }
 
     private void updateAttachedEntities(Set<Entity> changedEntities) {
         changedEntities.forEach(e -> {
-            Position position = e.get(Position.class);
-
-            Spatial spatial = getModel(e.getId());
-            spatial.setLocalTranslation(position.getLocation());
-            spatial.setLocalRotation(position.getRotation());
+            readPosition(e);
+            if (transformSync.set(e.getId(), location, rotation) && streamingGrid != null) {
+                streamingGrid.move(e, location);
+            }
         });
     }
 
     private void removeAttachedEntities(Set<Entity> removedEntities) {
         removedEntities.forEach(e -> {
-            Spatial spatial = getModel(e.getId());
-            LOG.trace("Remove {} from {}", spatial, spatial.getParent());
-            spatial.removeFromParent();
+            transformSync.remove(e.getId());
+            if (streamingGrid != null) {
+                streamingGrid.remove(e);
+            } else {
+                detachEntity(e);
+            }
         });
     }
 
+    private void detachEntity(Entity e) {
+        // the model could already be removed from the model container, use the attached spatial
+        Spatial spatial = attachedSpatials.remove(e.getId());
+        if (spatial != null) {
+            LOG.trace("Remove {} from {}", spatial, spatial.getParent());
+            lodSelector.remove(spatial);
+            detach(spatial);
+        }
+    }
+
+    /**
+     * Reads the position component of the entity in the location and rotation fields.
+     * @return the location field
+     */
+    private Vector3f readPosition(Entity e) {
+        if (positionType == CompactPosition.class) {
+            CompactPosition position = e.get(CompactPosition.class);
+            position.getLocation(location);
+            position.getRotation(rotation);
+        } else {
+            Position position = e.get(Position.class);
+            location.set(position.getLocation());
+            rotation.set(position.getRotation());
+        }
+        return location;
+    }
+
+    private void enqueue(SceneChange change) {
+        attachQueueSize.incrementAndGet();
+        if (change.detach) {
+            detachQueue.offer(change);
+            return;
+        }
+        if (change.loader == null && !change.replace) {
+            queuedAttaches.put(change.spatial, change);
+        }
+        attachQueue.offer(change);
+    }
+
+    private void drainAttachQueue(float tpf) {
+        int count = 0;
+        long start = System.nanoTime();
+        SceneChange change;
+        while ((count == 0 || System.nanoTime() - start < attachBudgetNanos) && (change = detachQueue.poll()) != null) {
+            attachQueueSize.decrementAndGet();
+            if (staticBatches != null) {
+                staticBatches.markDirty(change.spatial);
+            }
+            count++;
+            change.apply(sceneGraph);
+        }
+
+        // leave room in the budget to rebuild the instanced nodes and batches of the attached spatials
+        long attachBudget = attachBudgetNanos - rebuildNanos;
+        while ((count == 0 || System.nanoTime() - start < attachBudget) && (change = attachQueue.poll()) != null) {
+            attachQueueSize.decrementAndGet();
+            if (change.cancelled) {
+                continue;
+            }
+            if (change.spatial != null) {
+                queuedAttaches.remove(change.spatial, change);
+            }
+            count++;
+            if (!change.apply(sceneGraph)) {
+                continue;
+            }
+            markDirty(change.spatial);
+            if (change.replace) {
+                // the model of a node is loaded, apply the level of detail to the model
+                lodSelector.invalidate(change.parent);
+            }
+        }
+
+        long rebuildStart = System.nanoTime();
+        boolean rebuilt = instancedModels != null && instancedModels.instance();
+        rebuilt |= staticBatches != null && staticBatches.batch();
+        if (rebuilt) {
+            rebuildNanos += (long) ((System.nanoTime() - rebuildStart - rebuildNanos) * REBUILD_TIME_SMOOTHING);
+        }
+
+        lastDrainCount = count;
+        if (tpf > 0) {
+            drainRate += (count / tpf - drainRate) * DRAIN_RATE_SMOOTHING;
+        }
+    }
+
+    private void markDirty(Spatial spatial) {
+        if (instancedModels != null) {
+            instancedModels.markDirty(spatial, sceneGraph);
+        }
+        if (staticBatches != null) {
+            staticBatches.markDirty(spatial);
+        }
+    }
+
     private class ModelContainer extends EntityContainer<Spatial> {
 
         public ModelContainer(EntityData ed) {
@@ -175,7 +764,13 @@ public class VisualState extends BaseAppState {
         @Override
         protected Spatial addObject(Entity e) {
             Model model = e.get(Model.class);
-            return modelRegistry.get(model);
+            if (streamingGrid != null && entityData.getComponent(e.getId(), positionType) != null) {
+                return loadDeferred(e.getId(), model);
+            }
+            if (loadExecutor == null) {
+                return modelRegistry.get(model);
+            }
+            return loadAsync(e.getId(), model);
         }
 
         @Override
@@ -184,8 +779,156 @@ public class VisualState extends BaseAppState {
 
         @Override
         protected void removeObject(Spatial object, Entity e) {
+            deferredLoads.remove(e.getId());
+            CompletableFuture<Spatial> load = pendingLoads.remove(e.getId());
+            if (load != null) {
+                LOG.trace("Cancelling the load of {}", e.getId());
+                load.cancel(false);
+            }
+        }
+
+        /**
+         * Returns an empty node for the model. The model is loaded when the entity is preloaded by the streaming grid.
+         */
+        private Spatial loadDeferred(EntityId entityId, Model model) {
+            Node node = createNode(entityId, model);
+            deferredLoads.put(entityId, () -> {
+                if (loadExecutor == null) {
+                    // load the model on the render thread within the attach budget
+                    enqueue(new SceneChange(node, () -> loadQueued(entityId, model, node)));
+                } else {
+                    loadAsync(entityId, model, node);
+                }
+            });
+            return node;
+        }
+
+        /**
+         * Loads a model from the attach queue. Returns null when the entity was removed or the model couldn't be loaded.
+         */
+        private Spatial loadQueued(EntityId entityId, Model model, Node node) {
+            if (getObject(entityId) != node) {
+                LOG.trace("Skipping the load of removed {}", entityId);
+                return null;
+            }
+            try {
+                return modelRegistry.get(model);
+            } catch (RuntimeException e) {
+                LOG.error("Unable to load " + model + " for " + entityId, e);
+                return null;
+            }
+        }
+
+        private Spatial loadAsync(EntityId entityId, Model model) {
+            Node node = createNode(entityId, model);
+            loadAsync(entityId, model, node);
+            return node;
+        }
+
+        private Node createNode(EntityId entityId, Model model) {
+            Node node = new Node(model.getModelId() + "-" + entityId.getId());
+            if (placeholder != null) {
+                node.attachChild(placeholder.clone());
+            }
+            return node;
         }
 
+        private void loadAsync(EntityId entityId, Model model, Node node) {
+            CompletableFuture<Spatial> load = CompletableFuture.supplyAsync(() -> modelRegistry.get(model), loadExecutor);
+            pendingLoads.put(entityId, load);
+            load.whenComplete((spatial, throwable) -> {
+                pendingLoads.remove(entityId, load);
+                if (spatial != null) {
+                    enqueue(new SceneChange(node, spatial, true));
+                } else if (!load.isCancelled()) {
+                    LOG.error("Unable to load " + model + " for " + entityId, throwable);
+                }
+            });
+        }
+
+    }
+
+    private class StreamingListener implements StreamingGrid.Listener {
+
+        @Override
+        public void preload(Entity entity) {
+            Runnable load = deferredLoads.remove(entity.getId());
+            if (load != null) {
+                LOG.trace("Preloading the model of {}", entity.getId());
+                load.run();
+            }
+        }
+
+        @Override
+        public void attach(Entity entity) {
+            attachEntity(entity, getModel(entity.getId()));
+        }
+
+        @Override
+        public void detach(Entity entity) {
+            detachEntity(entity);
+        }
+
+    }
+
+    /**
+     * A spatial waiting in the attach queue to be attached or detached. When no parent is set, the spatial is attached
+     * to the scene graph. A replacing attachment removes the current children (the placeholder) of the parent.
+     * Attaching and detaching go through the same queue, so the changes of a spatial are applied in order. A replacing
+     * attachment can also load its spatial when it is applied, so loads on the render thread are spread over frames.
+     */
+    private static class SceneChange {
+
+        private final Node parent;
+        private final Supplier<Spatial> loader;
+        private final boolean replace;
+        private final boolean detach;
+        private Spatial spatial;
+        private volatile boolean cancelled;
+
+        private SceneChange(Node parent, Spatial spatial, boolean replace) {
+            this(parent, spatial, replace, false);
+        }
+
+        private SceneChange(Node parent, Spatial spatial, boolean replace, boolean detach) {
+            this.parent = parent;
+            this.spatial = spatial;
+            this.loader = null;
+            this.replace = replace;
+            this.detach = detach;
+        }
+
+        /**
+         * Creates a change that loads the spatial when it is applied and replaces the children of the parent with it.
+         */
+        private SceneChange(Node parent, Supplier<Spatial> loader) {
+            this.parent = parent;
+            this.loader = loader;
+            this.replace = true;
+            this.detach = false;
+        }
+
+        /**
+         * @return false when nothing was changed because the spatial couldn't be loaded
+         */
+        private boolean apply(Node sceneGraph) {
+            if (loader != null) {
+                spatial = loader.get();
+                if (spatial == null) {
+                    return false;
+                }
+            }
+            if (detach) {
+                spatial.removeFromParent();
+                return true;
+            }
+            Node target = parent != null ? parent : sceneGraph;
+            if (replace) {
+                target.detachAllChildren();
+            }
+            target.attachChild(spatial);
+            return true;
+        }
     }
 
 }
@@ -0,0 +1,47 @@
+package org.impstack.jme.state;
+
+import com.jme3.app.state.AppState;
+import org.impstack.event.Subscription;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Ties {@link Subscription}s to the lifecycle of an {@link AppState}.
+ * A bound subscription is closed on the first dispatch after the state is cleaned up (eg. when the state is detached),
+ * so the state no longer receives events and isn't kept in memory by the eventbus.
+ */
+public final class AppStateSubscriptions {
+
+    private AppStateSubscriptions() {
+    }
+
+    public static Subscription bind(Subscription subscription, AppState appState) {
+        return subscription.expireWhen(new CleanedUp(appState));
+    }
+
+    /**
+     * A condition that becomes true when a state that was initialized is no longer initialized. The state counts as
+     * initialized when it was initialized on binding (eg. when the subscription is bound in the initialize method of
+     * the state), or when it is initialized on a dispatch. Events published before the state is initialized are still
+     * delivered.
+     */
+    private static class CleanedUp implements BooleanSupplier {
+
+        private final AppState appState;
+        private volatile boolean initialized;
+
+        private CleanedUp(AppState appState) {
+            this.appState = appState;
+            this.initialized = appState.isInitialized();
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            if (appState.isInitialized()) {
+                initialized = true;
+                return false;
+            }
+            return initialized;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.impstack.jme.state;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+import org.impstack.event.EventPublisher;
+
+/**
+ * An application state that flushes the coalesced and {@link org.impstack.event.DeliveryMode#FRAME_BATCHED} events
+ * of an {@link EventPublisher} once per frame on the render thread.
+ */
+public class EventPublisherState extends BaseAppState {
+
+    private final EventPublisher eventPublisher;
+
+    public EventPublisherState() {
+        this(EventPublisher.INSTANCE);
+    }
+
+    public EventPublisherState(EventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    protected void initialize(Application app) {
+    }
+
+    @Override
+    protected void onEnable() {
+    }
+
+    @Override
+    public void update(float tpf) {
+        eventPublisher.flush();
+    }
+
+    @Override
+    protected void onDisable() {
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+    }
+
+    public EventPublisher getEventPublisher() {
+        return eventPublisher;
+    }
+}
@@ -1,5 +1,15 @@
 package org.impstack.event;
 
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class EventPublisherTest {
 
     public static void main(String[] args) {
@@ -39,6 +49,255 @@ public class EventPublisherTest {
         EventPublisher.INSTANCE.removeListener(genericListener, MyEvent.class, AnotherEvent.class);
     }
 
+    @Test
+    public void modifyListenersWhileDispatching() {
+        AtomicInteger received = new AtomicInteger();
+        EventListener<MyEvent> late = event -> received.incrementAndGet();
+        EventListener<MyEvent> adding = new EventListener<MyEvent>() {
+            @Override
+            public void onEvent(MyEvent event) {
+                received.incrementAndGet();
+                EventPublisher.INSTANCE.removeListener(this, MyEvent.class);
+                EventPublisher.INSTANCE.addListener(late, MyEvent.class);
+            }
+        };
+
+        EventPublisher.INSTANCE.addListener(adding, MyEvent.class);
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        Assert.assertEquals(1, received.get());
+
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        Assert.assertEquals(2, received.get());
+        EventPublisher.INSTANCE.removeListener(late, MyEvent.class);
+    }
+
+    @Test
+    public void receiveEventsOfSubTypes() {
+        AtomicInteger received = new AtomicInteger();
+        EventListener<Event> catchAll = event -> received.incrementAndGet();
+        EventListener<MyEvent> specific = event -> received.incrementAndGet();
+
+        EventPublisher.INSTANCE.addListener(catchAll, Event.class, MyEvent.class);
+        EventPublisher.INSTANCE.publish(new MySubEvent());
+        Assert.assertEquals(1, received.get());
+
+        EventPublisher.INSTANCE.addListener(specific, MyEvent.class);
+        EventPublisher.INSTANCE.publish(new MySubEvent());
+        EventPublisher.INSTANCE.publish(new AnotherEvent());
+        Assert.assertEquals(4, received.get());
+
+        EventPublisher.INSTANCE.removeListener(catchAll, Event.class, MyEvent.class);
+        EventPublisher.INSTANCE.removeListener(specific, MyEvent.class);
+        EventPublisher.INSTANCE.publish(new MySubEvent());
+        Assert.assertEquals(4, received.get());
+    }
+
+    @Test
+    public void frameBatchedDelivery() {
+        AtomicInteger received = new AtomicInteger();
+        EventListener<MyEvent> listener = event -> received.incrementAndGet();
+
+        Subscription subscription = EventPublisher.INSTANCE.addListener(listener, DeliveryMode.FRAME_BATCHED,
+                OverflowPolicy.DROP_OLDEST, 2, MyEvent.class);
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        Assert.assertEquals(0, received.get());
+        Assert.assertEquals(2, subscription.getQueueDepth());
+        Assert.assertEquals(1, subscription.getDropCount());
+
+        EventPublisher.INSTANCE.flush();
+        Assert.assertEquals(2, received.get());
+        Assert.assertEquals(0, subscription.getQueueDepth());
+        EventPublisher.INSTANCE.removeListener(listener, MyEvent.class);
+    }
+
+    @Test
+    public void coalesceOnOverflow() {
+        AtomicInteger received = new AtomicInteger();
+        EventListener<Event> listener = event -> received.incrementAndGet();
+
+        Subscription subscription = EventPublisher.INSTANCE.addListener(listener, DeliveryMode.FRAME_BATCHED,
+                OverflowPolicy.COALESCE, 2, MyEvent.class, AnotherEvent.class);
+        EventPublisher.INSTANCE.publish(new AnotherEvent());
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        Assert.assertEquals(2, subscription.getQueueDepth());
+        Assert.assertEquals(1, subscription.getDropCount());
+
+        EventPublisher.INSTANCE.flush();
+        Assert.assertEquals(2, received.get());
+        EventPublisher.INSTANCE.removeListener(listener, MyEvent.class, AnotherEvent.class);
+    }
+
+    @Test
+    public void asyncDelivery() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(3);
+        Thread caller = Thread.currentThread();
+        EventListener<MyEvent> listener = event -> {
+            if (Thread.currentThread() != caller) {
+                latch.countDown();
+            }
+        };
+
+        EventPublisher.INSTANCE.addListener(listener, DeliveryMode.ASYNC, MyEvent.class);
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        EventPublisher.INSTANCE.publish(new MyEvent());
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        EventPublisher.INSTANCE.removeListener(listener, MyEvent.class);
+    }
+
+    @Test
+    public void publishLatest() {
+        AtomicInteger received = new AtomicInteger();
+        EventListener<ValueEvent> listener = event -> received.addAndGet(event.value);
+
+        EventPublisher.INSTANCE.addListener(listener, ValueEvent.class);
+        EventPublisher.INSTANCE.setCoalescingKey(ValueEvent.class, event -> event.key);
+        EventPublisher.INSTANCE.publishLatest(new ValueEvent("a", 1));
+        EventPublisher.INSTANCE.publishLatest(new ValueEvent("b", 10));
+        EventPublisher.INSTANCE.publishLatest(new ValueEvent("a", 100));
+        Assert.assertEquals(0, received.get());
+        Assert.assertEquals(2, EventPublisher.INSTANCE.getPendingCoalescedCount());
+
+        EventPublisher.INSTANCE.flush();
+        Assert.assertEquals(110, received.get());
+        Assert.assertEquals(0, EventPublisher.INSTANCE.getPendingCoalescedCount());
+        EventPublisher.INSTANCE.setCoalescingKey(ValueEvent.class, null);
+        EventPublisher.INSTANCE.removeListener(listener, ValueEvent.class);
+    }
+
+    @Test
+    public void childForwardsToParent() {
+        EventPublisher root = new EventPublisher();
+        EventPublisher child = root.createChild();
+        AtomicInteger rootReceived = new AtomicInteger();
+        AtomicInteger childReceived = new AtomicInteger();
+
+        root.addListener((EventListener<MyEvent>) event -> rootReceived.incrementAndGet(), MyEvent.class);
+        child.addListener((EventListener<MyEvent>) event -> childReceived.incrementAndGet(), MyEvent.class);
+        child.publish(new MyEvent());
+        root.publish(new MyEvent());
+        Assert.assertEquals(2, rootReceived.get());
+        Assert.assertEquals(1, childReceived.get());
+
+        child.publishLatest(new MyEvent());
+        root.flush();
+        Assert.assertEquals(3, rootReceived.get());
+        Assert.assertEquals(2, childReceived.get());
+
+        child.close();
+        child.publish(new MyEvent());
+        Assert.assertEquals(3, rootReceived.get());
+        Assert.assertEquals(2, childReceived.get());
+    }
+
+    @Test
+    public void shutdownCreatedExecutorOnClose() {
+        EventPublisher publisher = new EventPublisher();
+        ExecutorService created = (ExecutorService) publisher.getExecutor();
+        publisher.close();
+        Assert.assertTrue(created.isShutdown());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        EventPublisher other = new EventPublisher();
+        other.setExecutor(executor);
+        other.close();
+        Assert.assertFalse(executor.isShutdown());
+        executor.shutdown();
+    }
+
+    @Test
+    public void closeSubscription() {
+        EventPublisher publisher = new EventPublisher();
+        AtomicInteger received = new AtomicInteger();
+
+        Subscription subscription = publisher.addListener((EventListener<Event>) event -> received.incrementAndGet(),
+                DeliveryMode.SYNC, MyEvent.class, AnotherEvent.class);
+        publisher.publish(new MyEvent());
+        subscription.close();
+        publisher.publish(new MyEvent());
+        publisher.publish(new AnotherEvent());
+        Assert.assertEquals(1, received.get());
+        Assert.assertFalse(subscription.isActive());
+    }
+
+    @Test
+    public void expireSubscription() {
+        EventPublisher publisher = new EventPublisher();
+        AtomicInteger received = new AtomicInteger();
+
+        Subscription subscription = publisher.addListener((EventListener<MyEvent>) event -> received.incrementAndGet(),
+                DeliveryMode.SYNC, MyEvent.class).expireWhen(() -> received.get() >= 2);
+        publisher.publish(new MyEvent());
+        publisher.publish(new MyEvent());
+        publisher.publish(new MyEvent());
+        Assert.assertEquals(2, received.get());
+        Assert.assertFalse(subscription.isActive());
+    }
+
+    @Test
+    public void purgeWeakListener() throws InterruptedException {
+        EventPublisher publisher = new EventPublisher();
+        Subscription subscription = publisher.addWeakListener(new MyListener(), MyEvent.class);
+
+        for (int i = 0; i < 50 && subscription.getListener() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assume.assumeTrue(subscription.getListener() == null);
+        publisher.publish(new MyEvent());
+        Assert.assertFalse(subscription.isActive());
+    }
+
+    @Test
+    public void priorityAndCancel() {
+        EventPublisher publisher = new EventPublisher();
+        StringBuilder order = new StringBuilder();
+
+        publisher.addListener((EventListener<ClickEvent>) event -> order.append("world"), -10, ClickEvent.class);
+        publisher.addListener((EventListener<ClickEvent>) event -> order.append("default "), ClickEvent.class);
+        publisher.addListener((EventListener<Event>) event -> order.append("telemetry "), 100, Event.class);
+        publisher.addListener((EventListener<ClickEvent>) event -> {
+            order.append("ui ");
+            if (event.consume) {
+                event.cancel();
+            }
+        }, 10, ClickEvent.class);
+
+        publisher.publish(new ClickEvent(false));
+        Assert.assertEquals("telemetry ui default world", order.toString());
+
+        order.setLength(0);
+        publisher.publish(new ClickEvent(true));
+        Assert.assertEquals("telemetry ui ", order.toString());
+    }
+
+    @Test
+    public void collectMetrics() {
+        EventPublisher publisher = new EventPublisher();
+        AtomicInteger slow = new AtomicInteger();
+        publisher.addListener((EventListener<MyEvent>) event -> {
+        }, MyEvent.class);
+        publisher.publish(new MyEvent());
+        Assert.assertNull(publisher.getMetricsSnapshot());
+
+        publisher.setMetricsEnabled(true);
+        publisher.getMetrics().setSlowListenerThreshold(0, TimeUnit.NANOSECONDS);
+        publisher.getMetrics().setSlowListenerHandler((subscription, event, nanos) -> slow.incrementAndGet());
+        publisher.publish(new MyEvent());
+        publisher.publish(new MyEvent());
+        publisher.publish(new AnotherEvent());
+
+        EventMetricsSnapshot snapshot = publisher.getMetricsSnapshot();
+        Assert.assertEquals(Long.valueOf(2), snapshot.getPublishCounts().get(MyEvent.class));
+        Assert.assertEquals(Long.valueOf(1), snapshot.getPublishCounts().get(AnotherEvent.class));
+        Assert.assertEquals(1, snapshot.getListeners().size());
+        Assert.assertEquals(2, snapshot.getListeners().get(0).getCount());
+        Assert.assertEquals(2, slow.get());
+    }
+
     private class MyEvent implements Event {
         @Override
         public String toString() {
@@ -46,6 +305,42 @@ public class EventPublisherTest {
         }
     }
 
+    private class MySubEvent extends MyEvent {
+        @Override
+        public String toString() {
+            return "MySubEvent{}";
+        }
+    }
+
+    private class ValueEvent implements Event {
+        private final String key;
+        private final int value;
+
+        private ValueEvent(String key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private class ClickEvent implements CancellableEvent {
+        private final boolean consume;
+        private boolean cancelled;
+
+        private ClickEvent(boolean consume) {
+            this.consume = consume;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
     private class AnotherEvent implements Event {
         @Override
         public String toString() {
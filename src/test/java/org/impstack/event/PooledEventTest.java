@@ -0,0 +1,102 @@
+package org.impstack.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PooledEventTest {
+
+    @Test
+    public void recycleAfterDispatch() {
+        EventPublisher publisher = new EventPublisher();
+        EventPool<ValueEvent> pool = new EventPool<>(ValueEvent::new);
+        AtomicInteger received = new AtomicInteger();
+        publisher.addListener((EventListener<ValueEvent>) event -> received.addAndGet(event.getValue()), ValueEvent.class);
+
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(pool.obtain().set(1));
+        }
+        Assert.assertEquals(10, received.get());
+        Assert.assertEquals(1, pool.getCreatedCount());
+        Assert.assertEquals(9, pool.getReusedCount());
+    }
+
+    @Test
+    public void recycleAfterQueuedDelivery() {
+        EventPublisher publisher = new EventPublisher();
+        EventPool<ValueEvent> pool = new EventPool<>(ValueEvent::new);
+        AtomicInteger received = new AtomicInteger();
+        publisher.addListener((EventListener<ValueEvent>) event -> received.addAndGet(event.getValue()),
+                DeliveryMode.FRAME_BATCHED, ValueEvent.class);
+
+        ValueEvent event = pool.obtain().set(5);
+        publisher.publish(event);
+        Assert.assertFalse(event.isRecycled());
+        Assert.assertEquals(0, pool.size());
+
+        publisher.flush();
+        Assert.assertEquals(5, received.get());
+        Assert.assertTrue(event.isRecycled());
+        Assert.assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void detectKeptEventInDebugMode() {
+        EventPublisher publisher = new EventPublisher();
+        EventPool<ValueEvent> pool = new EventPool<>(ValueEvent::new);
+        pool.setDebug(true);
+        AtomicReference<ValueEvent> kept = new AtomicReference<>();
+        publisher.addListener((EventListener<ValueEvent>) kept::set, ValueEvent.class);
+
+        publisher.publish(pool.obtain().set(1));
+        publisher.publish(pool.obtain().set(2));
+        Assert.assertEquals(2, pool.getCreatedCount());
+        try {
+            kept.get().getValue();
+            Assert.fail("Using a recycled event should fail in debug mode");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void recycleWhenListenerThrows() {
+        EventPublisher publisher = new EventPublisher();
+        EventPool<ValueEvent> pool = new EventPool<>(ValueEvent::new);
+        publisher.addListener((EventListener<ValueEvent>) event -> {
+            throw new IllegalStateException("listener failure");
+        }, ValueEvent.class);
+
+        ValueEvent event = pool.obtain().set(1);
+        try {
+            publisher.publish(event);
+            Assert.fail("The exception of a synchronous listener should be thrown by publish");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertTrue(event.isRecycled());
+        Assert.assertEquals(1, pool.size());
+    }
+
+    private static class ValueEvent extends PooledEvent {
+        private int value;
+
+        ValueEvent set(int value) {
+            this.value = value;
+            return this;
+        }
+
+        int getValue() {
+            checkNotRecycled();
+            return value;
+        }
+
+        @Override
+        protected void reset() {
+            value = 0;
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package org.impstack.jme.es;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BaseModelRegistryTest {
+
+    private AssetManager assetManager;
+    private BaseModelRegistry modelRegistry;
+
+    @Before
+    public void setUp() {
+        assetManager = new DesktopAssetManager(true);
+        modelRegistry = new BaseModelRegistry(assetManager) {
+            @Override
+            protected Spatial load(Model model) {
+                Geometry geometry = new Geometry(model.getModelId(), new Box(1, 1, 1));
+                geometry.setMaterial(new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md"));
+                return geometry;
+            }
+        };
+    }
+
+    @Test
+    public void cloneMaterials() {
+        Geometry first = (Geometry) modelRegistry.get(new Model("box"));
+        Geometry second = (Geometry) modelRegistry.get(new Model("box"));
+
+        Assert.assertSame(first.getMesh(), second.getMesh());
+        Assert.assertNotSame(first.getMaterial(), second.getMaterial());
+    }
+
+    @Test
+    public void shareMaterials() {
+        modelRegistry.setShareMaterials(true);
+        Geometry first = (Geometry) modelRegistry.get(new Model("box"));
+        Geometry second = (Geometry) modelRegistry.get(new Model("box"));
+
+        Assert.assertSame(first.getMesh(), second.getMesh());
+        Assert.assertSame(first.getMaterial(), second.getMaterial());
+    }
+
+}
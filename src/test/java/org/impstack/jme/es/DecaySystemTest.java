@@ -0,0 +1,85 @@
+package org.impstack.jme.es;
+
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
+import com.simsilica.es.base.DefaultEntityData;
+import com.simsilica.sim.GameSystemManager;
+import com.simsilica.sim.SimTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DecaySystemTest {
+
+    private EntityData entityData;
+    private GameSystemManager systemManager;
+
+    @Before
+    public void setUp() {
+        entityData = new DefaultEntityData();
+        systemManager = new GameSystemManager();
+    }
+
+    @After
+    public void tearDown() {
+        systemManager.stop();
+        systemManager.terminate();
+        entityData.close();
+    }
+
+    @Test
+    public void limitRemovalsPerTick() {
+        for (int i = 0; i < 10; i++) {
+            // expired decays
+            entityData.setComponent(entityData.createEntity(), new Decay(0, 0));
+        }
+        DecaySystem decaySystem = start(new DecaySystem(entityData));
+        decaySystem.setMaxRemovalsPerTick(4);
+        EntitySet decayEntities = entityData.getEntities(Decay.class);
+
+        SimTime time = new SimTime();
+        int[] expectedSizes = {6, 2, 0};
+        for (int expectedSize : expectedSizes) {
+            time.update(time.getTime() + 1);
+            decaySystem.update(time);
+            decayEntities.applyChanges();
+
+            Assert.assertEquals(expectedSize, decayEntities.size());
+            Assert.assertEquals(expectedSize, decaySystem.getPendingCount());
+        }
+        decayEntities.release();
+    }
+
+    @Test
+    public void expireAtSimTime() {
+        SimTime time = new SimTime();
+        time.update(1_000_000_000L);
+        EntityId entityId = entityData.createEntity();
+        // sim time is in nanoseconds
+        entityData.setComponent(entityId, SimDecay.after(time, 0.5));
+        DecaySystem decaySystem = start(new DecaySystem(entityData, TimeSource.SIM_TIME));
+
+        long endTime = 1_500_000_000L;
+        Assert.assertEquals(endTime, entityData.getComponent(entityId, SimDecay.class).getEndTime());
+
+        time.update(endTime - 1);
+        decaySystem.update(time);
+        Assert.assertNotNull(entityData.getComponent(entityId, SimDecay.class));
+        Assert.assertEquals(1, decaySystem.getPendingCount());
+
+        time.update(endTime);
+        decaySystem.update(time);
+        Assert.assertNull(entityData.getComponent(entityId, SimDecay.class));
+        Assert.assertEquals(0, decaySystem.getPendingCount());
+    }
+
+    private DecaySystem start(DecaySystem decaySystem) {
+        systemManager.register(DecaySystem.class, decaySystem);
+        systemManager.initialize();
+        systemManager.start();
+        return decaySystem;
+    }
+
+}
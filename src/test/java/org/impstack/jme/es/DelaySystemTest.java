@@ -0,0 +1,57 @@
+package org.impstack.jme.es;
+
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.base.DefaultEntityData;
+import com.simsilica.sim.GameSystemManager;
+import com.simsilica.sim.SimTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DelaySystemTest {
+
+    private EntityData entityData;
+    private GameSystemManager systemManager;
+
+    @Before
+    public void setUp() {
+        entityData = new DefaultEntityData();
+        systemManager = new GameSystemManager();
+    }
+
+    @After
+    public void tearDown() {
+        systemManager.stop();
+        systemManager.terminate();
+        entityData.close();
+    }
+
+    @Test
+    public void expireAtSimTime() {
+        SimTime time = new SimTime();
+        time.update(2_000_000_000L);
+        EntityId entityId = entityData.createEntity();
+        // sim time is in nanoseconds
+        entityData.setComponent(entityId, SimDelay.after(time, 1.5, new Model("box")));
+        DelaySystem delaySystem = new DelaySystem(entityData, TimeSource.SIM_TIME);
+        systemManager.register(DelaySystem.class, delaySystem);
+        systemManager.initialize();
+        systemManager.start();
+
+        long endTime = 3_500_000_000L;
+        Assert.assertEquals(endTime, entityData.getComponent(entityId, SimDelay.class).getEndTime());
+
+        time.update(endTime - 1);
+        delaySystem.update(time);
+        Assert.assertNull(entityData.getComponent(entityId, Model.class));
+        Assert.assertNotNull(entityData.getComponent(entityId, SimDelay.class));
+
+        time.update(endTime);
+        delaySystem.update(time);
+        Assert.assertEquals("box", entityData.getComponent(entityId, Model.class).getModelId());
+        Assert.assertNull(entityData.getComponent(entityId, SimDelay.class));
+    }
+
+}
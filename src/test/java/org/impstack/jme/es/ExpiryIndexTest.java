@@ -0,0 +1,47 @@
+package org.impstack.jme.es;
+
+import com.simsilica.es.EntityId;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpiryIndexTest {
+
+    @Test
+    public void pollInDeadlineOrder() {
+        ExpiryIndex index = new ExpiryIndex();
+        index.put(new EntityId(1), 30);
+        index.put(new EntityId(2), 10);
+        index.put(new EntityId(3), 20);
+
+        Assert.assertNull(index.pollExpired(5));
+        Assert.assertEquals(new EntityId(2), index.pollExpired(25));
+        Assert.assertEquals(new EntityId(3), index.pollExpired(25));
+        Assert.assertNull(index.pollExpired(25));
+        Assert.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void skipUpdatedAndRemovedEntries() {
+        ExpiryIndex index = new ExpiryIndex();
+        index.put(new EntityId(1), 10);
+        index.put(new EntityId(2), 10);
+        index.put(new EntityId(1), 50);
+        index.remove(new EntityId(2));
+
+        Assert.assertNull(index.pollExpired(20));
+        Assert.assertEquals(new EntityId(1), index.pollExpired(50));
+        Assert.assertEquals(0, index.size());
+    }
+
+    @Test
+    public void compactStaleEntries() {
+        ExpiryIndex index = new ExpiryIndex();
+        for (int i = 0; i < 10000; i++) {
+            index.put(new EntityId(1), i);
+        }
+        Assert.assertEquals(1, index.size());
+        Assert.assertNull(index.pollExpired(9998));
+        Assert.assertEquals(new EntityId(1), index.pollExpired(9999));
+    }
+
+}
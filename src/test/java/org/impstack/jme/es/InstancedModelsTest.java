@@ -0,0 +1,64 @@
+package org.impstack.jme.es;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.instancing.InstancedNode;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class InstancedModelsTest {
+
+    private static AssetManager assetManager;
+
+    @BeforeClass
+    public static void setUp() {
+        assetManager = new DesktopAssetManager(true);
+    }
+
+    @Test
+    public void attachUnsupportedMaterialToSceneGraph() {
+        Node sceneGraph = new Node("scene");
+        InstancedModels instancedModels = new InstancedModels();
+        InstancedNode node = instancedModels.getNode("box", sceneGraph);
+
+        Geometry geometry = new Geometry("box", new Box(1, 1, 1));
+        geometry.setMaterial(new Material(assetManager, "MatDefs/Null.j3md"));
+        Assert.assertFalse(InstancedModels.canInstance(geometry));
+
+        node.attachChild(geometry);
+        instancedModels.markDirty(geometry, sceneGraph);
+        instancedModels.instance();
+
+        Assert.assertSame(sceneGraph, geometry.getParent());
+    }
+
+    @Test
+    public void shareInstancedMaterialClone() {
+        Node sceneGraph = new Node("scene");
+        InstancedModels instancedModels = new InstancedModels();
+        InstancedNode node = instancedModels.getNode("box", sceneGraph);
+
+        Material material = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        Geometry first = new Geometry("box", new Box(1, 1, 1));
+        first.setMaterial(material);
+        Geometry second = first.clone(false);
+
+        node.attachChild(first);
+        node.attachChild(second);
+        instancedModels.markDirty(first, sceneGraph);
+        instancedModels.markDirty(second, sceneGraph);
+        instancedModels.instance();
+
+        // the shared material isn't changed, both geometries use the same instanced clone
+        Assert.assertNull(material.getParam("UseInstancing"));
+        Assert.assertNotSame(material, first.getMaterial());
+        Assert.assertSame(first.getMaterial(), second.getMaterial());
+        Assert.assertTrue(first.isGrouped());
+    }
+
+}
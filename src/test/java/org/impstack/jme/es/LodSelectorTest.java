@@ -0,0 +1,99 @@
+package org.impstack.jme.es;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.shape.Box;
+import com.jme3.util.BufferUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LodSelectorTest {
+
+    private static final LodSettings LEVELS = LodSettings.levels(new float[]{50, 100}, "low", "lowest");
+
+    @Test
+    public void attachOnlyCurrentLevel() {
+        LodNode node = createLodNode();
+        node.setLevel(0);
+        LodSelector selector = new LodSelector();
+        selector.add(node, LEVELS);
+
+        // the first evaluation always applies the level
+        Assert.assertEquals(1, selector.update(new Vector3f(0, 0, 10), 10));
+        Assert.assertEquals(0, selector.update(new Vector3f(0, 0, 20), 10));
+        Assert.assertEquals(1, node.getQuantity());
+        Assert.assertEquals("level-0", node.getChild(0).getName());
+
+        Assert.assertEquals(1, selector.update(new Vector3f(0, 0, 75), 10));
+        Assert.assertEquals(1, node.getQuantity());
+        Assert.assertEquals("level-1", node.getChild(0).getName());
+
+        Assert.assertEquals(1, selector.update(new Vector3f(0, 0, 500), 10));
+        Assert.assertEquals(1, node.getQuantity());
+        Assert.assertEquals("level-2", node.getChild(0).getName());
+    }
+
+    @Test
+    public void selectGeneratedMeshLevel() {
+        Mesh mesh = new Box(1, 1, 1);
+        VertexBuffer[] lodLevels = new VertexBuffer[3];
+        for (int i = 0; i < lodLevels.length; i++) {
+            lodLevels[i] = new VertexBuffer(VertexBuffer.Type.Index);
+            lodLevels[i].setupData(VertexBuffer.Usage.Static, 1, VertexBuffer.Format.UnsignedShort,
+                    BufferUtils.createShortBuffer(new short[]{0, 1, 2}));
+        }
+        mesh.setLodLevels(lodLevels);
+        Geometry geometry = new Geometry("box", mesh);
+        LodSelector selector = new LodSelector();
+        selector.add(geometry, LodSettings.generated(new float[]{50, 100}, 0.5f, 0.8f));
+
+        selector.update(new Vector3f(0, 0, 75), 10);
+        Assert.assertEquals(1, geometry.getLodLevel());
+        selector.update(new Vector3f(0, 0, 500), 10);
+        Assert.assertEquals(2, geometry.getLodLevel());
+    }
+
+    @Test
+    public void evaluateSlices() {
+        Spatial first = createLodNode();
+        Spatial second = createLodNode();
+        LodSelector selector = new LodSelector();
+        selector.add(first, LEVELS);
+        selector.add(second, LEVELS);
+
+        Assert.assertEquals(1, selector.update(Vector3f.ZERO, 1));
+        Assert.assertEquals(1, selector.update(Vector3f.ZERO, 1));
+        Assert.assertEquals(0, selector.update(Vector3f.ZERO, 1));
+
+        selector.remove(first);
+        Assert.assertEquals(1, selector.size());
+        selector.invalidate(second);
+        Assert.assertEquals(1, selector.update(Vector3f.ZERO, 1));
+    }
+
+    @Test
+    public void cloneLevels() {
+        LodNode node = createLodNode();
+        node.setLevel(0);
+
+        LodNode clone = (LodNode) node.clone(false);
+        clone.setLevel(2);
+
+        Assert.assertEquals("level-0", node.getChild(0).getName());
+        Assert.assertEquals("level-2", clone.getChild(0).getName());
+        Assert.assertNull(node.getChild("level-2"));
+    }
+
+    private static LodNode createLodNode() {
+        LodNode node = new LodNode("lod");
+        for (int i = 0; i < 3; i++) {
+            node.addLevel(new Node("level-" + i));
+        }
+        return node;
+    }
+
+}
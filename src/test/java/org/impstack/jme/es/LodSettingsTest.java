@@ -0,0 +1,28 @@
+package org.impstack.jme.es;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LodSettingsTest {
+
+    @Test
+    public void selectLevelByDistance() {
+        LodSettings settings = LodSettings.generated(new float[]{50, 100}, 0.5f, 0.8f);
+
+        Assert.assertEquals(3, settings.getLevelCount());
+        Assert.assertEquals(0, settings.getLevel(10));
+        Assert.assertEquals(1, settings.getLevel(50));
+        Assert.assertEquals(2, settings.getLevel(500));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectMissingLevelPaths() {
+        LodSettings.levels(new float[]{50, 100}, "Models/tree-low.j3o");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectDescendingDistances() {
+        LodSettings.generated(new float[]{100, 50}, 0.5f, 0.8f);
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.impstack.jme.es;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongObjectMapTest {
+
+    @Test
+    public void putGetAndRemove() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Assert.assertNull(map.put(1, "a"));
+        Assert.assertEquals("a", map.put(1, "b"));
+        Assert.assertEquals("b", map.get(1));
+        Assert.assertEquals("b", map.remove(1));
+        Assert.assertNull(map.get(1));
+        Assert.assertEquals(0, map.size());
+    }
+
+    @Test
+    public void matchHashMap() {
+        LongObjectMap<Long> map = new LongObjectMap<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        Assert.assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> Assert.assertEquals(value, map.get(key)));
+    }
+
+}
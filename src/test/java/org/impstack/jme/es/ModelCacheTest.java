@@ -0,0 +1,56 @@
+package org.impstack.jme.es;
+
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModelCacheTest {
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        ModelCache cache = new ModelCache();
+        cache.setMaxEntries(2);
+        cache.put("a", createBox());
+        cache.put("b", createBox());
+        cache.get("a");
+        cache.put("c", createBox());
+
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(3, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void evictOnVertexCount() {
+        Spatial box = createBox();
+        ModelCache cache = new ModelCache();
+        cache.setMaxVertices(box.getVertexCount() * 2);
+        cache.put("a", box);
+        cache.put("b", createBox());
+        cache.put("c", createBox());
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(box.getVertexCount() * 2, cache.getVertexCount());
+        Assert.assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void keepFirstPrototype() {
+        Spatial box = createBox();
+        ModelCache cache = new ModelCache();
+
+        Assert.assertSame(box, cache.put("a", box));
+        Assert.assertSame(box, cache.put("a", createBox()));
+        Assert.assertEquals(box.getVertexCount(), cache.getVertexCount());
+    }
+
+    private static Spatial createBox() {
+        return new Geometry("box", new Box(1, 1, 1));
+    }
+
+}
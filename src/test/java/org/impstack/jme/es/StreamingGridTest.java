@@ -0,0 +1,121 @@
+package org.impstack.jme.es;
+
+import com.jme3.math.Vector3f;
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.base.DefaultEntityData;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class StreamingGridTest {
+
+    private final List<String> events = new ArrayList<>();
+    private EntityData entityData;
+    private StreamingGrid grid;
+
+    @Before
+    public void setUp() {
+        entityData = new DefaultEntityData();
+        // cells of 10 units, attach within 20, detach beyond 30 and preload within 30
+        grid = new StreamingGrid(10, 20, 30, 30, new StreamingGrid.Listener() {
+            @Override
+            public void preload(Entity entity) {
+                events.add("preload " + entity.getId().getId());
+            }
+
+            @Override
+            public void attach(Entity entity) {
+                events.add("attach " + entity.getId().getId());
+            }
+
+            @Override
+            public void detach(Entity entity) {
+                events.add("detach " + entity.getId().getId());
+            }
+        });
+    }
+
+    @Test
+    public void attachCellsInRange() {
+        Entity near = createEntity();
+        Entity far = createEntity();
+        grid.add(near, new Vector3f(5, 0, 5));
+        grid.add(far, new Vector3f(105, 0, 5));
+        Assert.assertTrue(events.isEmpty());
+
+        grid.update(new Vector3f());
+        assertEvents("preload " + near.getId().getId(), "attach " + near.getId().getId());
+    }
+
+    @Test
+    public void preloadBeforeAttach() {
+        Entity entity = createEntity();
+        grid.add(entity, new Vector3f(35, 0, 5));
+
+        grid.update(new Vector3f());
+        assertEvents("preload " + entity.getId().getId());
+
+        grid.update(new Vector3f(15, 0, 0));
+        assertEvents("attach " + entity.getId().getId());
+    }
+
+    @Test
+    public void detachWithHysteresis() {
+        Entity entity = createEntity();
+        grid.add(entity, new Vector3f(5, 0, 5));
+        grid.update(new Vector3f());
+        events.clear();
+
+        // still attached up to the detach radius
+        grid.update(new Vector3f(25, 0, 0));
+        grid.update(new Vector3f(35, 0, 0));
+        assertEvents();
+
+        grid.update(new Vector3f(45, 0, 0));
+        assertEvents("detach " + entity.getId().getId());
+
+        // only attached again within the attach radius
+        grid.update(new Vector3f(35, 0, 0));
+        assertEvents();
+        grid.update(new Vector3f(25, 0, 0));
+        assertEvents("attach " + entity.getId().getId());
+    }
+
+    @Test
+    public void moveAndRemoveEntity() {
+        Entity entity = createEntity();
+        grid.add(entity, new Vector3f(5, 0, 5));
+        grid.update(new Vector3f());
+        events.clear();
+
+        // moving within attached cells doesn't change anything
+        grid.move(entity, new Vector3f(15, 0, 5));
+        assertEvents();
+
+        grid.move(entity, new Vector3f(105, 0, 5));
+        assertEvents("detach " + entity.getId().getId());
+
+        // preloading is done for each cell the entity enters
+        grid.move(entity, new Vector3f(5, 0, 5));
+        assertEvents("preload " + entity.getId().getId(), "attach " + entity.getId().getId());
+
+        grid.remove(entity);
+        assertEvents("detach " + entity.getId().getId());
+        Assert.assertEquals(0, grid.getCellCount());
+    }
+
+    private Entity createEntity() {
+        return entityData.getEntity(entityData.createEntity());
+    }
+
+    private void assertEvents(String... expected) {
+        Assert.assertEquals(Arrays.asList(expected), events);
+        events.clear();
+    }
+
+}
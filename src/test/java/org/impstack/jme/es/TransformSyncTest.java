@@ -0,0 +1,97 @@
+package org.impstack.jme.es;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+import com.simsilica.es.EntityId;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransformSyncTest {
+
+    private static final EntityId ENTITY = new EntityId(1);
+
+    @Test
+    public void skipUnchangedTransform() {
+        Spatial spatial = new Geometry("box", new Box(1, 1, 1));
+        TransformSync sync = new TransformSync(false, 0);
+        sync.add(ENTITY, spatial, new Vector3f(1, 2, 3), new Quaternion());
+
+        Assert.assertFalse(sync.set(ENTITY, new Vector3f(1, 2, 3), new Quaternion()));
+        Assert.assertTrue(sync.set(ENTITY, new Vector3f(4, 5, 6), new Quaternion()));
+        Assert.assertEquals(new Vector3f(4, 5, 6), spatial.getLocalTranslation());
+        Assert.assertEquals(1, sync.getSkipCount());
+        Assert.assertEquals(1, sync.getWriteCount());
+    }
+
+    @Test
+    public void interpolateOverPeriod() {
+        Spatial spatial = new Geometry("box", new Box(1, 1, 1));
+        TransformSync sync = new TransformSync(true, 1f);
+        sync.add(ENTITY, spatial, new Vector3f(), new Quaternion());
+
+        sync.set(ENTITY, new Vector3f(10, 0, 0), new Quaternion());
+        sync.update(0.5f);
+        Assert.assertEquals(5f, spatial.getLocalTranslation().x, 0.001f);
+        sync.update(0.5f);
+        Assert.assertEquals(10f, spatial.getLocalTranslation().x, 0.001f);
+        Assert.assertEquals(0, sync.getInterpolatingCount());
+    }
+
+    @Test
+    public void deferOffscreenTransform() {
+        Camera camera = new Camera(640, 480);
+        camera.setFrustumPerspective(45, 640 / 480f, 1, 1000);
+        camera.lookAtDirection(new Vector3f(0, 0, -1), Vector3f.UNIT_Y);
+
+        Spatial spatial = new Geometry("box", new Box(1, 1, 1));
+        TransformSync sync = new TransformSync(false, 0);
+        sync.setCullingCamera(camera);
+        sync.setCullingMargin(1);
+        sync.add(ENTITY, spatial, new Vector3f(0, 0, 100), new Quaternion());
+
+        // behind the camera
+        sync.set(ENTITY, new Vector3f(0, 0, 110), new Quaternion());
+        sync.update(0.1f);
+        Assert.assertEquals(100f, spatial.getLocalTranslation().z, 0.001f);
+        Assert.assertEquals(1, sync.getDeferredCount());
+
+        // in front of the camera
+        sync.set(ENTITY, new Vector3f(0, 0, -50), new Quaternion());
+        Assert.assertEquals(-50f, spatial.getLocalTranslation().z, 0.001f);
+        Assert.assertEquals(0, sync.getDeferredCount());
+        Assert.assertEquals(1, sync.getDeferCount());
+    }
+
+    @Test
+    public void applyTransformMovingOffscreen() {
+        Camera camera = new Camera(640, 480);
+        camera.setFrustumPerspective(45, 640 / 480f, 1, 1000);
+        camera.lookAtDirection(new Vector3f(0, 0, -1), Vector3f.UNIT_Y);
+
+        Spatial spatial = new Geometry("box", new Box(1, 1, 1));
+        TransformSync sync = new TransformSync(true, 1f);
+        sync.setCullingCamera(camera);
+        sync.setCullingMargin(1);
+        sync.add(ENTITY, spatial, new Vector3f(0, 0, -50), new Quaternion());
+
+        // from in front of the camera to behind the camera
+        sync.set(ENTITY, new Vector3f(0, 0, 200), new Quaternion());
+        Assert.assertEquals(0, sync.getDeferredCount());
+        Assert.assertEquals(1, sync.getInterpolatingCount());
+        sync.update(0.5f);
+        Assert.assertEquals(75f, spatial.getLocalTranslation().z, 0.001f);
+        sync.update(0.5f);
+        Assert.assertEquals(200f, spatial.getLocalTranslation().z, 0.001f);
+        Assert.assertEquals(0, sync.getDeferCount());
+
+        // once off-screen, the next transform is deferred
+        sync.set(ENTITY, new Vector3f(0, 0, 210), new Quaternion());
+        Assert.assertEquals(200f, spatial.getLocalTranslation().z, 0.001f);
+        Assert.assertEquals(1, sync.getDeferredCount());
+    }
+
+}
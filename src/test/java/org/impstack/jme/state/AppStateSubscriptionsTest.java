@@ -0,0 +1,77 @@
+package org.impstack.jme.state;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+import org.impstack.event.DeliveryMode;
+import org.impstack.event.Event;
+import org.impstack.event.EventListener;
+import org.impstack.event.EventPublisher;
+import org.impstack.event.Subscription;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AppStateSubscriptionsTest {
+
+    @Test
+    public void closeWhenCleanedUpBeforeAnyEvent() {
+        EventPublisher publisher = new EventPublisher();
+        SubscribingState state = new SubscribingState(publisher);
+
+        state.initialize(null, null);
+        state.cleanup();
+        publisher.publish(new TestEvent());
+
+        Assert.assertEquals(0, state.received.get());
+        Assert.assertFalse(state.subscription.isActive());
+    }
+
+    @Test
+    public void deliverUntilCleanedUp() {
+        EventPublisher publisher = new EventPublisher();
+        SubscribingState state = new SubscribingState(publisher);
+
+        state.initialize(null, null);
+        publisher.publish(new TestEvent());
+        state.cleanup();
+        publisher.publish(new TestEvent());
+
+        Assert.assertEquals(1, state.received.get());
+        Assert.assertFalse(state.subscription.isActive());
+    }
+
+    private static class TestEvent implements Event {
+    }
+
+    private static class SubscribingState extends BaseAppState {
+
+        private final EventPublisher publisher;
+        private final AtomicInteger received = new AtomicInteger();
+        private Subscription subscription;
+
+        private SubscribingState(EventPublisher publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        protected void initialize(Application app) {
+            subscription = AppStateSubscriptions.bind(publisher.addListener(
+                    (EventListener<TestEvent>) event -> received.incrementAndGet(), DeliveryMode.SYNC, TestEvent.class),
+                    this);
+        }
+
+        @Override
+        protected void cleanup(Application app) {
+        }
+
+        @Override
+        protected void onEnable() {
+        }
+
+        @Override
+        protected void onDisable() {
+        }
+    }
+
+}